@@ -0,0 +1,106 @@
+package ir.msob.manak.rms.scm.patch;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Classifying and decoding patch content: {@link Base64Content} against the code it replaced (a
+ * whitespace-stripping regex plus a full {@link Base64.Decoder#decode} to test, and a second decode to use).
+ * Run with {@code -prof gc} to compare allocation:
+ * {@code mvn -Pjmh test-compile exec:exec -Djmh.args="Base64ContentBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Base64ContentBenchmark {
+
+    @Param({"4096", "4194304"})
+    private int size;
+
+    private String encoded;
+    private String wrapped;
+    private String plain;
+
+    @Setup
+    public void setUp() {
+        byte[] bytes = new byte[size];
+        new Random(1).nextBytes(bytes);
+        encoded = Base64.getEncoder().encodeToString(bytes);
+        wrapped = Base64.getMimeEncoder().encodeToString(bytes);
+        // source text fails both checks only at its first space, as most plain content does
+        StringBuilder text = new StringBuilder(size);
+        while (text.length() < size) {
+            text.append("public class Main { }\n");
+        }
+        plain = text.toString();
+    }
+
+    @Benchmark
+    public boolean classifyBase64() {
+        return Base64Content.isBase64(encoded);
+    }
+
+    @Benchmark
+    public boolean classifyBase64Baseline() {
+        return isBase64Like(encoded);
+    }
+
+    @Benchmark
+    public boolean classifyPlain() {
+        return Base64Content.isBase64(plain);
+    }
+
+    @Benchmark
+    public boolean classifyPlainBaseline() {
+        return isBase64Like(plain);
+    }
+
+    @Benchmark
+    public boolean classifyWrapped() {
+        return Base64Content.isBase64(wrapped);
+    }
+
+    @Benchmark
+    public boolean classifyWrappedBaseline() {
+        return isBase64Like(wrapped);
+    }
+
+    @Benchmark
+    public String classifyAndDecode() {
+        return Base64Content.isBase64(encoded) ? Base64Content.decodeToString(encoded) : encoded;
+    }
+
+    @Benchmark
+    public String classifyAndDecodeBaseline() {
+        // ApplyPatchTool before Base64Content: decode once to test, again to use
+        try {
+            if (Base64.getDecoder().decode(encoded).length > 0) {
+                return new String(Base64.getDecoder().decode(encoded));
+            }
+        } catch (IllegalArgumentException ignored) {
+            // keep original
+        }
+        return encoded;
+    }
+
+    /**
+     * {@code GithubProviderService.isBase64Like} before {@link Base64Content}.
+     */
+    private static boolean isBase64Like(String s) {
+        if (s.isEmpty()) {
+            return false;
+        }
+        try {
+            Base64.getDecoder().decode(s.replaceAll("\\s", ""));
+            return true;
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+}
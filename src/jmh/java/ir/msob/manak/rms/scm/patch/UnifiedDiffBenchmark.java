@@ -0,0 +1,122 @@
+package ir.msob.manak.rms.scm.patch;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses and applies a generated multi-file diff: {@code files} files of {@code lines} lines each, with a
+ * one-line change every {@code hunkEvery} lines.
+ * <p>
+ * {@link #parseAndApply} is the streaming engine; {@link #splitAndRebuild} is the straightforward approach
+ * it replaces (split the file into a line list, rebuild the whole text per hunk). Compare allocation with
+ * {@code -prof gc}: {@code mvn -Pjmh test-compile exec:exec -Djmh.args="UnifiedDiffBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UnifiedDiffBenchmark {
+
+    @Param({"20"})
+    private int files;
+    @Param({"2000", "20000"})
+    private int lines;
+    @Param({"50"})
+    private int hunkEvery;
+
+    private String[] originals;
+    private String diff;
+    private List<FileDiff> parsed;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        originals = new String[files];
+        StringBuilder diffText = new StringBuilder();
+        for (int f = 0; f < files; f++) {
+            String[] fileLines = new String[lines];
+            for (int l = 0; l < lines; l++) {
+                fileLines[l] = "    line " + l + " of file " + f + " value=" + random.nextInt(1_000_000) + ";";
+            }
+            originals[f] = String.join("\n", fileLines) + "\n";
+
+            String path = "src/main/java/gen/File" + f + ".java";
+            diffText.append("diff --git a/").append(path).append(" b/").append(path).append('\n')
+                    .append("--- a/").append(path).append('\n')
+                    .append("+++ b/").append(path).append('\n');
+            for (int changed = hunkEvery / 2; changed < lines - 3; changed += hunkEvery) {
+                // three lines of context around one replaced line
+                diffText.append("@@ -").append(changed - 2).append(",7 +").append(changed - 2).append(",7 @@\n");
+                for (int l = changed - 3; l < changed; l++) {
+                    diffText.append(' ').append(fileLines[l]).append('\n');
+                }
+                diffText.append('-').append(fileLines[changed]).append('\n')
+                        .append('+').append(fileLines[changed].replace("value=", "value=-")).append('\n');
+                for (int l = changed + 1; l <= changed + 3; l++) {
+                    diffText.append(' ').append(fileLines[l]).append('\n');
+                }
+            }
+        }
+        diff = diffText.toString();
+        parsed = UnifiedDiffParser.parse(diff);
+    }
+
+    @Benchmark
+    public List<FileDiff> parse() {
+        return UnifiedDiffParser.parse(diff);
+    }
+
+    @Benchmark
+    public void parseAndApply(Blackhole blackhole) {
+        List<FileDiff> fileDiffs = UnifiedDiffParser.parse(diff);
+        for (int f = 0; f < fileDiffs.size(); f++) {
+            blackhole.consume(UnifiedDiffApplier.apply(originals[f], fileDiffs.get(f)));
+        }
+    }
+
+    @Benchmark
+    public void splitAndRebuild(Blackhole blackhole) {
+        for (int f = 0; f < parsed.size(); f++) {
+            blackhole.consume(splitAndRebuild(originals[f], parsed.get(f)));
+        }
+    }
+
+    /**
+     * Reference: line list per file and a full-text copy per hunk.
+     */
+    private static String splitAndRebuild(String original, FileDiff fileDiff) {
+        String text = original;
+        int shift = 0;
+        for (Hunk hunk : fileDiff.hunks()) {
+            List<String> current = new ArrayList<>(Arrays.asList(text.split("\n", -1)));
+            int at = hunk.oldStart() - 1 + shift;
+            List<String> replacement = new ArrayList<>();
+            int removed = 0;
+            for (String line : hunk.lines()) {
+                char op = line.charAt(0);
+                if (op == ' ' || op == '-') {
+                    if (!current.get(at + removed).equals(line.substring(1))) {
+                        throw new IllegalStateException("mismatch in " + fileDiff.path());
+                    }
+                    removed++;
+                }
+                if (op == ' ' || op == '+') {
+                    replacement.add(line.substring(1));
+                }
+            }
+            current.subList(at, at + removed).clear();
+            current.addAll(at, replacement);
+            shift += replacement.size() - removed;
+            text = String.join("\n", current);
+        }
+        return text;
+    }
+}
@@ -0,0 +1,69 @@
+package ir.msob.manak.rms.changestream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.msob.manak.domain.model.rms.gitspecification.GitSpecification;
+import ir.msob.manak.domain.model.rms.repository.Repository;
+import ir.msob.manak.domain.model.rms.repositoryspecification.RepositorySpecification;
+import ir.msob.manak.rms.scm.scmprovider.RepositoryNearCache;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Invalidates the {@link RepositoryNearCache} from Mongo change streams on the {@link Repository},
+ * {@link RepositorySpecification} and {@link GitSpecification} collections.
+ * <p>
+ * The domain services already invalidate on their own writes; the change streams add writes made on other
+ * nodes (or directly in Mongo), which would otherwise be served until the entry's TTL. Reads still go to
+ * Mongo through the domain services, which enforce access. Meters: {@code rms.change-stream.changes{collection}}.
+ */
+@Component
+public class ChangeStreamInvalidator {
+
+    private final ReactiveMongoTemplate template;
+    private final ChangeStreamProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final List<CollectionWatcher> watchers = new ArrayList<>();
+
+    public ChangeStreamInvalidator(ReactiveMongoTemplate template, ChangeStreamProperties properties,
+                                   RepositoryNearCache repositoryNearCache, MeterRegistry meterRegistry) {
+        this.template = template;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        watch(Repository.class, id -> {
+            if (id == null) {
+                repositoryNearCache.invalidateAll();
+            } else {
+                repositoryNearCache.invalidate(id);
+            }
+        });
+        // resolved repositories embed specification data, and are not indexed by specification
+        watch(RepositorySpecification.class, id -> repositoryNearCache.invalidateAll());
+        watch(GitSpecification.class, id -> repositoryNearCache.invalidateAll());
+    }
+
+    private void watch(Class<?> type, Consumer<String> onChange) {
+        String collection = template.getCollectionName(type);
+        Counter changes = Counter.builder("rms.change-stream.changes").tag("collection", collection).register(meterRegistry);
+        watchers.add(new CollectionWatcher(collection, template, properties, onChange, changes));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (properties.isEnabled()) {
+            watchers.forEach(CollectionWatcher::start);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        watchers.forEach(CollectionWatcher::stop);
+    }
+}
@@ -0,0 +1,26 @@
+package ir.msob.manak.rms.changestream;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Change-stream invalidation of the repository near-cache, bound from {@code rms.change-stream.*}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rms.change-stream")
+@Getter
+@Setter
+public class ChangeStreamProperties {
+
+    /**
+     * Follow the collections with change streams. Off by default: change streams need a replica set or a
+     * sharded cluster.
+     */
+    private boolean enabled = false;
+    private Duration retryMinBackoff = Duration.ofSeconds(1);
+    private Duration retryMaxBackoff = Duration.ofMinutes(1);
+}
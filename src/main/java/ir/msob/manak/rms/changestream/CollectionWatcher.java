@@ -0,0 +1,124 @@
+package ir.msob.manak.rms.changestream;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.changestream.OperationType;
+import io.micrometer.core.instrument.Counter;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ChangeStreamOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import java.util.function.Consumer;
+
+/**
+ * Follows the change stream of one collection and reports the id of every changed document.
+ * <p>
+ * Only document keys are read; documents themselves are neither kept nor written anywhere. The resume
+ * token is kept in memory, so a dropped stream resumes where it stopped. Whenever changes may have been
+ * missed (first start, expired token, dropped or invalidated collection) {@code onChange} is called with
+ * {@code null}, meaning "anything may have changed".
+ */
+class CollectionWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(CollectionWatcher.class);
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    private final String collection;
+    private final ReactiveMongoTemplate template;
+    private final ChangeStreamProperties properties;
+    private final Consumer<String> onChange;
+    private final Counter changes;
+
+    private volatile BsonDocument resumeToken;
+    private Disposable subscription;
+
+    CollectionWatcher(String collection, ReactiveMongoTemplate template, ChangeStreamProperties properties,
+                      Consumer<String> onChange, Counter changes) {
+        this.collection = collection;
+        this.template = template;
+        this.properties = properties;
+        this.onChange = onChange;
+        this.changes = changes;
+    }
+
+    void start() {
+        subscription = Flux.defer(this::stream)
+                // DROP/INVALIDATE end the stream: start over after a pause
+                .repeatWhen(completed -> completed.delayElements(properties.getRetryMinBackoff()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, properties.getRetryMinBackoff())
+                        .maxBackoff(properties.getRetryMaxBackoff())
+                        .doBeforeRetry(signal -> {
+                            Throwable e = signal.failure();
+                            if (e instanceof MongoCommandException mce && mce.getErrorCode() == CHANGE_STREAM_HISTORY_LOST) {
+                                log.warn("⚠️ [ChangeStream] resume token of {} expired; starting over", collection);
+                                resumeToken = null;
+                            } else {
+                                log.warn("⚠️ [ChangeStream] stream of {} failed, retrying: {}", collection, e.getMessage());
+                            }
+                        }))
+                .subscribe(this::apply);
+    }
+
+    void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    private Flux<ChangeStreamEvent<Document>> stream() {
+        BsonDocument token = resumeToken;
+        if (token != null) {
+            return template.changeStream(collection, ChangeStreamOptions.builder().resumeAfter(token).build(), Document.class);
+        }
+        // a new stream does not deliver earlier changes, so whatever was cached before may be stale
+        return template.changeStream(collection, ChangeStreamOptions.empty(), Document.class)
+                .doOnSubscribe(s -> onChange.accept(null));
+    }
+
+    private void apply(ChangeStreamEvent<Document> event) {
+        OperationType type = event.getOperationType();
+        if (type == null) {
+            return;
+        }
+        switch (type) {
+            case INSERT, UPDATE, REPLACE, DELETE -> {
+                BsonDocument key = event.getRaw() == null ? null : event.getRaw().getDocumentKey();
+                onChange.accept(key == null ? null : idOf(key.get("_id")));
+                changes.increment();
+            }
+            case DROP, RENAME, DROP_DATABASE, INVALIDATE -> {
+                // the stream ends after these; the repeat starts a new one
+                resumeToken = null;
+                onChange.accept(null);
+                return;
+            }
+            default -> {
+                return;
+            }
+        }
+        BsonValue token = event.getResumeToken();
+        if (token != null && token.isDocument()) {
+            resumeToken = token.asDocument();
+        }
+    }
+
+    private static String idOf(BsonValue id) {
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        if (id.isString()) {
+            return id.asString().getValue();
+        }
+        return id.toString();
+    }
+}
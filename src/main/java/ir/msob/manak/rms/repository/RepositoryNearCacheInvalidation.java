@@ -0,0 +1,49 @@
+package ir.msob.manak.rms.repository;
+
+import ir.msob.jima.core.commons.operation.BaseBeforeAfterDomainOperation;
+import ir.msob.manak.core.model.jima.security.User;
+import ir.msob.manak.domain.model.rms.repository.RepositoryCriteria;
+import ir.msob.manak.domain.model.rms.repository.RepositoryDto;
+import ir.msob.manak.rms.scm.scmprovider.RepositoryNearCache;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Drops a repository from the {@link RepositoryNearCache} once it is saved, updated or deleted, whichever
+ * CRUD operation (single, many or by criteria) changed it.
+ */
+@Component
+public class RepositoryNearCacheInvalidation
+        implements BaseBeforeAfterDomainOperation<String, User, RepositoryDto, RepositoryCriteria> {
+
+    private final RepositoryNearCache repositoryNearCache;
+
+    public RepositoryNearCacheInvalidation(RepositoryNearCache repositoryNearCache) {
+        this.repositoryNearCache = repositoryNearCache;
+    }
+
+    @Override
+    public Mono<Void> afterSave(RepositoryDto dto, RepositoryDto savedDto, User user) {
+        return invalidate(savedDto);
+    }
+
+    @Override
+    public Mono<Void> afterUpdate(RepositoryDto previousDto, RepositoryDto updatedDto, User user) {
+        return invalidate(previousDto);
+    }
+
+    @Override
+    public Mono<Void> afterDelete(RepositoryDto dto, RepositoryCriteria criteria, User user) {
+        return invalidate(dto);
+    }
+
+    private Mono<Void> invalidate(RepositoryDto dto) {
+        return Mono.fromRunnable(() -> {
+            if (dto != null && dto.getId() != null) {
+                repositoryNearCache.invalidate(dto.getId());
+            } else {
+                repositoryNearCache.invalidateAll();
+            }
+        });
+    }
+}
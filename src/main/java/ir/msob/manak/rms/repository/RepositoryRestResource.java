@@ -15,18 +15,23 @@ import ir.msob.manak.core.service.jima.security.UserService;
 import ir.msob.manak.domain.model.rms.repository.Repository;
 import ir.msob.manak.domain.model.rms.repository.RepositoryCriteria;
 import ir.msob.manak.domain.model.rms.repository.RepositoryDto;
+import ir.msob.manak.rms.scm.scmprovider.ScmOperationService;
 import jakarta.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.security.Principal;
 
@@ -40,24 +45,56 @@ public class RepositoryRestResource extends DomainCrudRestResource<Repository, R
     public static final String BASE_URI = "/api/v1/" + Repository.DOMAIN_NAME_WITH_HYPHEN;
     private final Logger log = LoggerFactory.getLogger(RepositoryRestResource.class);
 
-    protected RepositoryRestResource(UserService userService, RepositoryService service) {
+    private final ScmOperationService scmOperationService;
+
+    protected RepositoryRestResource(UserService userService, RepositoryService service, ScmOperationService scmOperationService) {
         super(userService, service);
+        this.scmOperationService = scmOperationService;
     }
 
 
+    /**
+     * Serves the branch's zip archive from the archive cache. The body is a file resource, so it is sent with
+     * zero-copy transfer where the server supports it; {@code Range} requests get {@code 206} partial content
+     * and a matching {@code If-None-Match} gets {@code 304}, both handled by WebFlux.
+     */
     @GetMapping({"{id}/branch/{branch}/download", "{id}/download"})
     @ApiResponses(value = {@ApiResponse(code = 200, message = "Return a domain or null"),
             @ApiResponse(code = 400, message = "If the validation operation is incorrect throws BadRequestException otherwise nothing", response = BadRequestResponse.class)})
     @Scope(operation = Operations.SAVE)
     @MethodStats
-    public ResponseEntity<Flux<DataBuffer>> downloadBranch(@PathVariable("id") String id, @PathVariable(value = "branch", required = false) @Nullable String branch, Principal principal) {
+    public Mono<ResponseEntity<org.springframework.core.io.Resource>> downloadBranch(@PathVariable("id") String id, @PathVariable(value = "branch", required = false) @Nullable String branch, Principal principal) {
         log.debug("REST request to download repository {}, branch {}", id, branch);
         User user = getUser(principal);
-        Flux<DataBuffer> res = this.getService().downloadBranch(id, branch, user);
+        return this.getService().downloadBranch(id, branch, user)
+                .map(archive -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .eTag(archive.etag())
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + id + ".zip\"")
+                        .body(new FileSystemResource(archive.file())));
+    }
+
+    /**
+     * Pipes one file's raw bytes from the provider to the client without buffering them; this is where
+     * {@code GetFileContent} points for files too large to return inline.
+     */
+    @GetMapping("{id}/file")
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Return the raw file content"),
+            @ApiResponse(code = 400, message = "If the validation operation is incorrect throws BadRequestException otherwise nothing", response = BadRequestResponse.class)})
+    @Scope(operation = Operations.GET_BY_ID)
+    @MethodStats
+    public ResponseEntity<Flux<DataBuffer>> streamFile(@PathVariable("id") String id,
+                                                       @RequestParam("path") String path,
+                                                       @RequestParam(value = "branch", required = false) @Nullable String branch,
+                                                       @RequestParam(value = "fresh", defaultValue = "false") boolean fresh,
+                                                       Principal principal) {
+        log.debug("REST request to stream file {} of repository {}, branch {}", path, id, branch);
+        User user = getUser(principal);
+        String fileName = path.substring(path.lastIndexOf('/') + 1);
         return ResponseEntity.ok()
                 .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + id + ".zip\"")
-                .body(res);
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(scmOperationService.streamFile(id, branch, path, fresh, user));
     }
 
 }
@@ -13,37 +13,42 @@ import ir.msob.manak.domain.model.rms.dto.ScmContext;
 import ir.msob.manak.domain.model.rms.repository.Repository;
 import ir.msob.manak.domain.model.rms.repository.RepositoryCriteria;
 import ir.msob.manak.domain.model.rms.repository.RepositoryDto;
+import ir.msob.manak.rms.scm.cache.ArchiveCache;
 import ir.msob.manak.rms.scm.scmprovider.ScmProviderRegistry;
+import ir.msob.manak.rms.scm.scmprovider.ScmProviderService;
 import ir.msob.manak.rms.util.RepositoryUtil;
 import jakarta.annotation.Nullable;
 import jakarta.validation.Valid;
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.Collection;
-import java.util.Collections;
+import java.util.List;
 
 @Service
 public class RepositoryService
         extends DomainCrudService<Repository, RepositoryDto, RepositoryCriteria, RepositoryRepository>
         implements ChildDomainCrudService<RepositoryDto> {
+    private static final String ARCHIVE_FORMAT = "zip";
     private final ScmProviderRegistry gitProviderHubService;
 
     private final ModelMapper modelMapper;
     private final IdService idService;
+    private final ArchiveCache archiveCache;
+    private final RepositoryNearCacheInvalidation repositoryNearCacheInvalidation;
     private final Logger log = LoggerFactory.getLogger(RepositoryService.class);
 
-    protected RepositoryService(BeforeAfterComponent beforeAfterComponent, ObjectMapper objectMapper, RepositoryRepository repository, ModelMapper modelMapper, IdService idService, ScmProviderRegistry gitProviderHubService) {
+    protected RepositoryService(BeforeAfterComponent beforeAfterComponent, ObjectMapper objectMapper, RepositoryRepository repository, ModelMapper modelMapper, IdService idService, ScmProviderRegistry gitProviderHubService, ArchiveCache archiveCache, RepositoryNearCacheInvalidation repositoryNearCacheInvalidation) {
         super(beforeAfterComponent, objectMapper, repository);
         this.modelMapper = modelMapper;
         this.idService = idService;
         this.gitProviderHubService = gitProviderHubService;
+        this.archiveCache = archiveCache;
+        this.repositoryNearCacheInvalidation = repositoryNearCacheInvalidation;
     }
 
     @Override
@@ -58,7 +63,7 @@ public class RepositoryService
 
     @Override
     public Collection<BaseBeforeAfterDomainOperation<String, User, RepositoryDto, RepositoryCriteria>> getBeforeAfterDomainOperations() {
-        return Collections.emptyList();
+        return List.of(repositoryNearCacheInvalidation);
     }
 
     @Transactional
@@ -78,12 +83,16 @@ public class RepositoryService
         return idService;
     }
 
+    /**
+     * Resolves the branch to its head commit and returns that commit's zip archive from the archive cache,
+     * downloading it from the provider on the first request.
+     */
     @Transactional
-    public Flux<DataBuffer> downloadBranch(String id, @Nullable String branch, User user) {
+    public Mono<ArchiveCache.Archive> downloadBranch(String id, @Nullable String branch, User user) {
         log.info("🔹 Starting downloadBranch for repository id={} and branch={} by user={}", id, branch, user.getUsername());
 
         return getDto(id, user)
-                .flatMapMany(repositoryDto -> {
+                .flatMap(repositoryDto -> {
                     String finalBranch = RepositoryUtil.getBranch(repositoryDto, branch);
                     String repositoryPath = RepositoryUtil.getRepositoryPath(repositoryDto);
                     String token = RepositoryUtil.getToken(repositoryDto);
@@ -97,12 +106,14 @@ public class RepositoryService
                     log.debug("📦 Repository info -> path={}, finalBranch={}, provider={}",
                             repositoryPath, finalBranch, repositoryDto.getSpecification().getName());
 
-                    return gitProviderHubService.getProvider(repositoryDto)
-                            .downloadArchive(ctx, branchRef)
-                            .doOnSubscribe(s -> log.info("⬇️  Download started for repo={}, branch={}", repositoryPath, finalBranch))
-                            .doOnNext(buffer -> log.trace("📄 Received data chunk of size={} bytes", buffer.readableByteCount()))
-                            .doOnError(e -> log.error("❌ Error downloading branch {} from repo {}: {}", finalBranch, repositoryPath, e.getMessage(), e))
-                            .doFinally(signal -> log.info("✅ Download finished for repo={}, branch={} [signal={}]", repositoryPath, finalBranch, signal));
+                    ScmProviderService provider = gitProviderHubService.getProvider(repositoryDto);
+                    return provider.resolveCommitSha(ctx, branchRef)
+                            .flatMap(sha -> archiveCache.get(repositoryPath, sha, ARCHIVE_FORMAT, () ->
+                                    // download the resolved commit, not the branch, so the file matches its key
+                                    provider.downloadArchive(ctx, BranchRef.builder().name(sha).build())
+                                            .doOnSubscribe(s -> log.info("⬇️  Download started for repo={}, branch={}, sha={}", repositoryPath, finalBranch, sha))
+                                            .doOnError(e -> log.error("❌ Error downloading branch {} from repo {}: {}", finalBranch, repositoryPath, e.getMessage(), e))
+                                            .doFinally(signal -> log.info("✅ Download finished for repo={}, branch={} [signal={}]", repositoryPath, finalBranch, signal))));
                 })
                 .doOnError(e -> log.error("❌ Failed to initialize download for id={}, branch={}, error={}", id, branch, e.getMessage(), e))
                 .doFinally(signal -> log.info("🟢 Transaction finished for downloadBranch(id={}, branch={}) [signal={}]", id, branch, signal));
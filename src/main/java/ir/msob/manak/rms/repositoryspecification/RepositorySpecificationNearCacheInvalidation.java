@@ -0,0 +1,39 @@
+package ir.msob.manak.rms.repositoryspecification;
+
+import ir.msob.jima.core.commons.operation.BaseBeforeAfterDomainOperation;
+import ir.msob.manak.core.model.jima.security.User;
+import ir.msob.manak.domain.model.rms.repositoryspecification.RepositorySpecificationCriteria;
+import ir.msob.manak.domain.model.rms.repositoryspecification.RepositorySpecificationDto;
+import ir.msob.manak.rms.scm.scmprovider.RepositoryNearCache;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Clears the {@link RepositoryNearCache} once a repository specification is saved, updated or deleted:
+ * resolved repositories embed the specification's URL and token, and are not indexed by specification.
+ */
+@Component
+public class RepositorySpecificationNearCacheInvalidation
+        implements BaseBeforeAfterDomainOperation<String, User, RepositorySpecificationDto, RepositorySpecificationCriteria> {
+
+    private final RepositoryNearCache repositoryNearCache;
+
+    public RepositorySpecificationNearCacheInvalidation(RepositoryNearCache repositoryNearCache) {
+        this.repositoryNearCache = repositoryNearCache;
+    }
+
+    @Override
+    public Mono<Void> afterSave(RepositorySpecificationDto dto, RepositorySpecificationDto savedDto, User user) {
+        return Mono.fromRunnable(repositoryNearCache::invalidateAll);
+    }
+
+    @Override
+    public Mono<Void> afterUpdate(RepositorySpecificationDto previousDto, RepositorySpecificationDto updatedDto, User user) {
+        return Mono.fromRunnable(repositoryNearCache::invalidateAll);
+    }
+
+    @Override
+    public Mono<Void> afterDelete(RepositorySpecificationDto dto, RepositorySpecificationCriteria criteria, User user) {
+        return Mono.fromRunnable(repositoryNearCache::invalidateAll);
+    }
+}
@@ -18,7 +18,7 @@ import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Mono;
 
 import java.util.Collection;
-import java.util.Collections;
+import java.util.List;
 
 @Service
 public class RepositorySpecificationService extends DomainCrudService<RepositorySpecification, RepositorySpecificationDto, RepositorySpecificationCriteria, RepositorySpecificationRepository>
@@ -26,11 +26,13 @@ public class RepositorySpecificationService extends DomainCrudService<Repository
 
     private final ModelMapper modelMapper;
     private final IdService idService;
+    private final RepositorySpecificationNearCacheInvalidation nearCacheInvalidation;
 
-    protected RepositorySpecificationService(BeforeAfterComponent beforeAfterComponent, ObjectMapper objectMapper, RepositorySpecificationRepository repository, ModelMapper modelMapper, IdService idService) {
+    protected RepositorySpecificationService(BeforeAfterComponent beforeAfterComponent, ObjectMapper objectMapper, RepositorySpecificationRepository repository, ModelMapper modelMapper, IdService idService, RepositorySpecificationNearCacheInvalidation nearCacheInvalidation) {
         super(beforeAfterComponent, objectMapper, repository);
         this.modelMapper = modelMapper;
         this.idService = idService;
+        this.nearCacheInvalidation = nearCacheInvalidation;
     }
 
     @Override
@@ -45,7 +47,7 @@ public class RepositorySpecificationService extends DomainCrudService<Repository
 
     @Override
     public Collection<BaseBeforeAfterDomainOperation<String, User, RepositorySpecificationDto, RepositorySpecificationCriteria>> getBeforeAfterDomainOperations() {
-        return Collections.emptyList();
+        return List.of(nearCacheInvalidation);
     }
 
     @Transactional
@@ -0,0 +1,522 @@
+package ir.msob.manak.rms.scm;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tunables for the SCM subsystem, bound from {@code rms.scm.*}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rms.scm")
+@Getter
+@Setter
+public class ScmProperties {
+
+    private Github github = new Github();
+    private Upload upload = new Upload();
+    private Http http = new Http();
+    private HttpCache httpCache = new HttpCache();
+    private ContentCache contentCache = new ContentCache();
+    private Local local = new Local();
+    private Mirror mirror = new Mirror();
+    private ArchiveCache archiveCache = new ArchiveCache();
+    private RepositoryCache repositoryCache = new RepositoryCache();
+    private BatchRead batchRead = new BatchRead();
+    private FileStream fileStream = new FileStream();
+    private ToolExecution toolExecution = new ToolExecution();
+    private ToolBatch toolBatch = new ToolBatch();
+    private Mutation mutation = new Mutation();
+
+    @Getter
+    @Setter
+    public static class Github {
+        /**
+         * Base URL of the GitHub REST API.
+         */
+        private String apiUrl = "https://api.github.com";
+        /**
+         * How {@code applyPatch} writes files to the target branch.
+         */
+        private ApplyPatchMode applyPatchMode = ApplyPatchMode.GIT_DATA;
+        private RateLimit rateLimit = new RateLimit();
+        private TokenPool tokenPool = new TokenPool();
+        /**
+         * GitHub Apps by name; a token entry {@code app:<name>/<installation id>} authenticates as that
+         * installation.
+         */
+        private Map<String, GithubApp> apps = new HashMap<>();
+        private AppToken appToken = new AppToken();
+        private Graphql graphql = new Graphql();
+
+        /**
+         * {@code graphql.url} when set, otherwise derived from {@code api-url}: {@code <api-url>/graphql} on
+         * github.com, {@code https://<host>/api/graphql} for a GitHub Enterprise Server {@code /api/v3} URL.
+         */
+        public String graphqlUrl() {
+            if (graphql.getUrl() != null && !graphql.getUrl().isBlank()) {
+                return graphql.getUrl();
+            }
+            String base = apiUrl.endsWith("/") ? apiUrl.substring(0, apiUrl.length() - 1) : apiUrl;
+            return base.endsWith("/api/v3")
+                    ? base.substring(0, base.length() - "/v3".length()) + "/graphql"
+                    : base + "/graphql";
+        }
+    }
+
+    /**
+     * GraphQL v4 transport for file and blob reads, batched per repository. Branch heads stay on REST, where
+     * a conditional request answered 304 costs no rate-limit budget.
+     */
+    @Getter
+    @Setter
+    public static class Graphql {
+        private boolean enabled = true;
+        /**
+         * GraphQL endpoint; derived from {@code api-url} when unset (see {@link Github#graphqlUrl()}).
+         */
+        private String url;
+        /**
+         * How long the first read of a batch waits for others to join it.
+         */
+        private Duration batchWindow = Duration.ofMillis(10);
+        /**
+         * Reads per query; a full batch is sent without waiting for the window.
+         */
+        private int maxBatchSize = 50;
+    }
+
+    @Getter
+    @Setter
+    public static class GithubApp {
+        private String appId;
+        /**
+         * PEM private key as downloaded from GitHub (PKCS#1) or converted to PKCS#8.
+         */
+        private String privateKey;
+        /**
+         * File holding the PEM private key; used when {@code private-key} is not set.
+         */
+        private String privateKeyPath;
+        /**
+         * Installation ids specification tokens may reference; tokens are never minted for any other.
+         */
+        private List<String> installations = new ArrayList<>();
+    }
+
+    /**
+     * Installation tokens live one hour; they are minted again before that, off the request path.
+     */
+    @Getter
+    @Setter
+    public static class AppToken {
+        /**
+         * Tokens expiring within this window are re-minted by the background sweep.
+         */
+        private Duration refreshAhead = Duration.ofMinutes(10);
+        private Duration sweepInterval = Duration.ofMinutes(1);
+        /**
+         * Tokens unused for this long are dropped instead of refreshed.
+         */
+        private Duration idleAfter = Duration.ofHours(2);
+    }
+
+    /**
+     * Rotation across the tokens of a specification whose token holds several, separated by commas or
+     * whitespace.
+     */
+    @Getter
+    @Setter
+    public static class TokenPool {
+        /**
+         * How long a token answered with 401 is skipped.
+         */
+        private Duration badCredentialsCooldown = Duration.ofMinutes(10);
+        /**
+         * Other tokens tried after a rate-limited or 401 response before it is returned.
+         */
+        private int maxFailovers = 2;
+    }
+
+    /**
+     * Client-side scheduling against GitHub's per-token rate limits.
+     */
+    @Getter
+    @Setter
+    public static class RateLimit {
+        private boolean enabled = true;
+        /**
+         * Requests left in the window that only writes may use; reads wait for the reset instead.
+         */
+        private int readReserve = 100;
+        /**
+         * Below this many remaining requests, calls are spread evenly until the window resets.
+         */
+        private int paceBelow = 1000;
+        /**
+         * Times a rate-limited (403/429) request is re-queued before its error is returned.
+         */
+        private int maxRetries = 3;
+        /**
+         * Wait applied to a secondary-rate-limit response that carries no {@code Retry-After}.
+         */
+        private Duration defaultRetryAfter = Duration.ofSeconds(60);
+        /**
+         * Longest a request waits for budget before it fails.
+         */
+        private Duration maxWait = Duration.ofMinutes(2);
+    }
+
+    @Getter
+    @Setter
+    public static class Upload {
+        /**
+         * Max in-flight per-file calls (SHA lookups, blob uploads) against one repository, shared by all
+         * patches to it.
+         */
+        private int concurrency = 8;
+        /**
+         * Per-repository overrides of {@link #concurrency}, keyed by repository path (e.g. {@code owner/name}).
+         */
+        private Map<String, Integer> repositoryConcurrency = new HashMap<>();
+
+        public int concurrencyFor(String repository) {
+            return Math.max(1, repositoryConcurrency.getOrDefault(repository, concurrency));
+        }
+    }
+
+    /**
+     * Shared HTTP client used by every SCM provider.
+     */
+    @Getter
+    @Setter
+    public static class Http {
+        /**
+         * Max open connections per remote host (Reactor Netty keeps one pool per host).
+         */
+        private int maxConnections = 100;
+        /**
+         * Per-host overrides of {@link #maxConnections}, keyed by host name (e.g. {@code api.github.com}).
+         */
+        private Map<String, Integer> hostMaxConnections = new HashMap<>();
+        /**
+         * Max requests queued for a connection once a host pool is exhausted.
+         */
+        private int pendingAcquireMaxCount = 500;
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(10);
+        /**
+         * Idle connections are closed after this long; evicted in the background.
+         */
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+        private Duration maxLifeTime = Duration.ofMinutes(5);
+        private Duration evictionInterval = Duration.ofSeconds(30);
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        /**
+         * Max time without reading/writing on a connection (not the total transfer time).
+         */
+        private Duration readTimeout = Duration.ofSeconds(30);
+        private Duration writeTimeout = Duration.ofSeconds(30);
+        /**
+         * Max time until response headers arrive.
+         */
+        private Duration responseTimeout = Duration.ofSeconds(30);
+        /**
+         * Negotiate HTTP/2 over TLS (ALPN), falling back to HTTP/1.1.
+         */
+        private boolean http2 = true;
+        /**
+         * Send {@code Accept-Encoding: gzip} and decompress responses.
+         */
+        private boolean compression = true;
+        /**
+         * Max response size decoded in memory (JSON bodies such as recursive trees).
+         */
+        private DataSize maxInMemorySize = DataSize.ofMegabytes(16);
+        private CircuitBreaker circuitBreaker = new CircuitBreaker();
+        private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+    }
+
+    /**
+     * Per-host circuit breaker in front of every provider call.
+     */
+    @Getter
+    @Setter
+    public static class CircuitBreaker {
+        private boolean enabled = true;
+        /**
+         * Outcomes of this many most recent calls are considered.
+         */
+        private int windowSize = 50;
+        /**
+         * The breaker does not open before this many calls are recorded.
+         */
+        private int minimumCalls = 20;
+        /**
+         * Percentage of host failures (5xx, connection errors, timeouts) in the window that opens the breaker.
+         */
+        private int failureRateThreshold = 50;
+        private Duration openDuration = Duration.ofSeconds(30);
+        /**
+         * Trial calls let through once {@link #openDuration} has passed; all must succeed to close again.
+         */
+        private int halfOpenProbes = 3;
+    }
+
+    /**
+     * Per-host adaptive (AIMD) concurrency limit in front of every provider call.
+     */
+    @Getter
+    @Setter
+    public static class ConcurrencyLimit {
+        private boolean enabled = true;
+        private int initialLimit = 20;
+        private int minLimit = 2;
+        private int maxLimit = 200;
+        /**
+         * Factor applied to the limit on a host failure or a slow answer.
+         */
+        private double backoffRatio = 0.9;
+        /**
+         * An answer slower than this multiple of the host's baseline latency counts as slow.
+         */
+        private double latencyTolerance = 2.0;
+        /**
+         * Calls waiting for a slot per host; more are rejected.
+         */
+        private int maxQueued = 500;
+        private Duration maxWait = Duration.ofSeconds(10);
+    }
+
+    /**
+     * Conditional-request (ETag / Last-Modified) cache for provider GETs.
+     */
+    @Getter
+    @Setter
+    public static class HttpCache {
+        private boolean enabled = true;
+        /**
+         * Total size of cached response bodies.
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+        /**
+         * Larger responses are passed through uncached.
+         */
+        private DataSize maxEntrySize = DataSize.ofMegabytes(1);
+    }
+
+    /**
+     * Two-tier cache behind {@code readFile}: branch -> commit SHA (short TTL), then blob SHA -> bytes.
+     */
+    @Getter
+    @Setter
+    public static class ContentCache {
+        private boolean enabled = true;
+        /**
+         * How long a resolved {@code (repository, branch) -> commit SHA} stays valid.
+         */
+        private Duration refTtl = Duration.ofSeconds(5);
+        private int maxRefs = 10_000;
+        /**
+         * Max {@code path -> blob SHA} entries kept over all cached commit trees.
+         */
+        private long maxTreeEntries = 1_000_000;
+        /**
+         * On-heap blob bytes; least recently used blobs spill to disk.
+         */
+        private DataSize heapSize = DataSize.ofMegabytes(128);
+        private DataSize diskSize = DataSize.ofGigabytes(1);
+        /**
+         * Spilled blobs go to its {@code blobs} subdirectory, which is the only thing cleared on startup.
+         */
+        private String diskPath = System.getProperty("java.io.tmpdir") + "/rms/blob-cache";
+    }
+
+    /**
+     * Bare-mirror provider ({@code type: local}) backed by JGit.
+     */
+    @Getter
+    @Setter
+    public static class Local {
+        /**
+         * Directory holding one bare clone per repository.
+         */
+        private String basePath = System.getProperty("java.io.tmpdir") + "/rms/mirrors";
+        /**
+         * A mirror is fetched again once its last fetch is older than this.
+         */
+        private Duration fetchInterval = Duration.ofSeconds(30);
+        /**
+         * User name sent with the repository token over HTTPS.
+         */
+        private String username = "x-access-token";
+    }
+
+    /**
+     * Hybrid mode: reads of the listed specifications are served from a local bare mirror, writes still go
+     * to the remote provider.
+     */
+    @Getter
+    @Setter
+    public static class Mirror {
+        /**
+         * Keyed by {@code RepositorySpecification.name}; specifications not listed talk to the remote only.
+         */
+        private Map<String, MirrorSpecification> specifications = new HashMap<>();
+
+        public MirrorSpecification specificationFor(String name) {
+            MirrorSpecification specification = name == null ? null : specifications.get(name);
+            return specification != null && specification.isEnabled() ? specification : null;
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class MirrorSpecification {
+        private boolean enabled = true;
+        /**
+         * Clone URL of a repository; {@code {repository}} is replaced with the provider's repository path.
+         */
+        private String cloneUrl = "https://github.com/{repository}.git";
+        /**
+         * Max age of the mirror for a read; older mirrors are fetched first.
+         */
+        private Duration maxStaleness = Duration.ofSeconds(30);
+        /**
+         * Serve a read from the remote provider when the mirror cannot answer it.
+         */
+        private boolean fallbackToRemote = true;
+
+        public String cloneUrlFor(String repository) {
+            return cloneUrl.replace("{repository}", repository);
+        }
+    }
+
+    /**
+     * Disk cache behind repository downloads, keyed by resolved commit SHA.
+     */
+    @Getter
+    @Setter
+    public static class ArchiveCache {
+        /**
+         * Archives go to its {@code archives} subdirectory, which is the only thing cleared on startup.
+         */
+        private String path = System.getProperty("java.io.tmpdir") + "/rms/archive-cache";
+        /**
+         * Total size of cached archive files; least recently used archives are deleted first.
+         */
+        private DataSize maxSize = DataSize.ofGigabytes(10);
+        /**
+         * How long an archive larger than {@link #maxSize} is kept for the request that fetched it.
+         */
+        private Duration oversizedTtl = Duration.ofMinutes(10);
+    }
+
+    /**
+     * Near-cache of repositories resolved by {@code ScmOperationService}.
+     */
+    @Getter
+    @Setter
+    public static class RepositoryCache {
+        private boolean enabled = true;
+        /**
+         * Upper bound on staleness for changes that do not invalidate the cache explicitly.
+         */
+        private Duration ttl = Duration.ofSeconds(30);
+        private int maxEntries = 10_000;
+    }
+
+    /**
+     * Multi-file reads ({@code readFiles} and the GetFilesContent tool).
+     */
+    @Getter
+    @Setter
+    public static class BatchRead {
+        /**
+         * Most files one call may read, after glob expansion.
+         */
+        private int maxFiles = 200;
+        /**
+         * In-flight per-file calls of one batch.
+         */
+        private int concurrency = 8;
+    }
+
+    /**
+     * Files larger than the tool response allows are handed out as a stream URL instead of inline content.
+     */
+    @Getter
+    @Setter
+    public static class FileStream {
+        private DataSize maxInlineSize = DataSize.ofMegabytes(1);
+    }
+
+    /**
+     * Enforcement of the retry and timeout policies tools declare in their descriptors.
+     */
+    @Getter
+    @Setter
+    public static class ToolExecution {
+        private boolean enabled = true;
+        /**
+         * Each retry delay is scaled by a random factor in {@code [1 - jitter, 1 + jitter]}.
+         */
+        private double jitter = 0.5;
+    }
+
+    /**
+     * Batch tool invocation ({@code POST /api/v1/tool/invoke/batch}).
+     */
+    @Getter
+    @Setter
+    public static class ToolBatch {
+        private int maxItems = 100;
+        /**
+         * Invocations of one batch in flight, including those waiting for their dependencies.
+         */
+        private int concurrency = 16;
+        /**
+         * Invocations of one batch running against the same repository.
+         */
+        private int perRepositoryConcurrency = 4;
+    }
+
+    /**
+     * Scheduling of ref-mutating operations (apply patch, create/delete branch, merge).
+     */
+    @Getter
+    @Setter
+    public static class Mutation {
+        private boolean enabled = true;
+        /**
+         * Mutations running at once across all repositories.
+         */
+        private int maxConcurrent = 32;
+        /**
+         * Mutations running at once on one repository, each on a different branch.
+         */
+        private int perRepositoryConcurrency = 4;
+        /**
+         * Further mutations of a repository with this many waiting are rejected.
+         */
+        private int maxQueuedPerRepository = 100;
+    }
+
+    public enum ApplyPatchMode {
+        /**
+         * Upload blobs, build one tree, create one commit and move the ref once.
+         */
+        GIT_DATA,
+        /**
+         * Legacy path: one GET + PUT on the Contents API (and one commit) per file.
+         */
+        CONTENTS
+    }
+}
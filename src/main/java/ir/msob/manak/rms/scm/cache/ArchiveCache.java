@@ -0,0 +1,125 @@
+package ir.msob.manak.rms.scm.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.msob.manak.rms.scm.ScmProperties;
+import ir.msob.manak.rms.scm.scmprovider.SingleFlight;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Disk cache of repository archives keyed by {@code (repository, commit SHA, format)}.
+ * <p>
+ * A commit's archive never changes, so an entry is downloaded once and then served straight from its
+ * file. Concurrent misses for the same key share one download through {@link SingleFlight}; every caller,
+ * including one that joins while the download runs, gets the complete file. Files are bounded by total bytes
+ * ({@code max-size}) and evicted least recently used; the cache's own {@code archives} subdirectory of
+ * {@code path} is wiped on startup (see {@link CacheDirectory}). Archives larger
+ * than the whole cache are still served once and deleted after {@code oversized-ttl}. Meters are published
+ * as {@code scm.cache.*{cache=archive}}.
+ */
+@Component
+public class ArchiveCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchiveCache.class);
+
+    private final ScmProperties.ArchiveCache properties;
+    private final Path directory;
+    private final LruCache<String, Archive> archives;
+    private final SingleFlight singleFlight;
+
+    public ArchiveCache(ScmProperties scmProperties, SingleFlight singleFlight, MeterRegistry meterRegistry) throws IOException {
+        this.properties = scmProperties.getArchiveCache();
+        this.singleFlight = singleFlight;
+        this.directory = CacheDirectory.prepare(properties.getPath(), "archives");
+        this.archives = new LruCache<String, Archive>("archive", properties.getMaxSize().toBytes(), Archive::size, (key, archive) -> delete(archive.file()))
+                .bindTo(meterRegistry);
+    }
+
+    /**
+     * Returns the cached archive, or writes the one produced by {@code loader} to disk first.
+     */
+    public Mono<Archive> get(String repository, String commitSha, String format, Supplier<Flux<DataBuffer>> loader) {
+        String key = repository + "|" + commitSha + "|" + format;
+        Archive cached = archives.get(key);
+        if (cached != null && Files.exists(cached.file())) {
+            return Mono.just(cached);
+        }
+        return singleFlight.mono("downloadArchive", key, () -> download(key, commitSha, format, loader));
+    }
+
+    private Mono<Archive> download(String key, String commitSha, String format, Supplier<Flux<DataBuffer>> loader) {
+        Path target = directory.resolve(fileName(key) + "." + format);
+        long start = System.nanoTime();
+        return Mono.fromCallable(() -> Files.createTempFile(directory, "archive", ".tmp"))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(tmp -> DataBufferUtils.write(loader.get(), tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+                        .then(Mono.fromCallable(() -> {
+                            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                            return new Archive(target, Files.size(target), "\"" + commitSha + "." + format + "\"");
+                        }).subscribeOn(Schedulers.boundedElastic()))
+                        .doOnError(e -> delete(tmp)))
+                .doOnNext(archive -> {
+                    log.info("💾 [ArchiveCache] stored {} ({} bytes) in {}ms", key, archive.size(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    if (archive.size() > properties.getMaxSize().toBytes()) {
+                        // too large to keep: serve it, then drop it
+                        Schedulers.boundedElastic().schedule(() -> delete(archive.file()),
+                                properties.getOversizedTtl().toMillis(), TimeUnit.MILLISECONDS);
+                    } else {
+                        archives.put(key, archive);
+                    }
+                });
+    }
+
+    @PreDestroy
+    public void clear() {
+        archives.clear();
+        try {
+            CacheDirectory.clear(directory);
+        } catch (IOException e) {
+            log.warn("⚠️ [ArchiveCache] failed to clear {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("⚠️ [ArchiveCache] failed to delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 20);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param etag strong validator derived from the commit SHA
+     */
+    public record Archive(Path file, long size, String etag) {
+    }
+}
@@ -0,0 +1,103 @@
+package ir.msob.manak.rms.scm.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.msob.manak.rms.scm.ScmProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Supplier;
+
+/**
+ * Second tier of the content cache: content-addressed {@code blob SHA -> bytes}.
+ * <p>
+ * Blobs are immutable, so an entry never needs revalidation. Recently used blobs stay on heap; entries
+ * evicted from the heap tier spill to files under {@code disk-path} (bounded by {@code disk-size}) and are
+ * promoted back on the next hit. The disk tier, a {@code blobs} subdirectory of {@code disk-path}, is
+ * wiped on startup (see {@link CacheDirectory}). Meters are published per tier as
+ * {@code scm.cache.*{cache=blob-heap|blob-disk}}.
+ */
+@Component
+public class BlobContentCache {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobContentCache.class);
+
+    private final Path directory;
+    private final LruCache<String, byte[]> heap;
+    private final LruCache<String, Long> disk;
+
+    public BlobContentCache(ScmProperties scmProperties, MeterRegistry meterRegistry) throws IOException {
+        ScmProperties.ContentCache properties = scmProperties.getContentCache();
+        this.directory = CacheDirectory.prepare(properties.getDiskPath(), "blobs");
+        this.disk = new LruCache<String, Long>("blob-disk", properties.getDiskSize().toBytes(), Long::longValue, (sha, size) -> deleteFile(sha))
+                .bindTo(meterRegistry);
+        this.heap = new LruCache<String, byte[]>("blob-heap", properties.getHeapSize().toBytes(), b -> b.length, this::spill)
+                .bindTo(meterRegistry);
+    }
+
+    /**
+     * Returns the blob from heap or disk, or loads it once with {@code loader} and keeps it.
+     */
+    public Mono<byte[]> get(String sha, Supplier<Mono<byte[]>> loader) {
+        byte[] cached = heap.get(sha);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        if (disk.get(sha) != null) {
+            return Mono.fromCallable(() -> Files.readAllBytes(file(sha)))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .doOnNext(bytes -> {
+                        disk.remove(sha);
+                        deleteFile(sha);
+                        heap.put(sha, bytes);
+                    })
+                    .onErrorResume(e -> {
+                        log.warn("⚠️ [BlobCache] failed to read spilled blob {}: {}", sha, e.getMessage());
+                        disk.remove(sha);
+                        return load(sha, loader);
+                    });
+        }
+        return load(sha, loader);
+    }
+
+    private Mono<byte[]> load(String sha, Supplier<Mono<byte[]>> loader) {
+        return loader.get().doOnNext(bytes -> heap.put(sha, bytes));
+    }
+
+    /**
+     * Heap eviction listener; runs under the heap lock, so the write is handed off.
+     */
+    private void spill(String sha, byte[] bytes) {
+        Schedulers.boundedElastic().schedule(() -> {
+            try {
+                Path target = file(sha);
+                Files.createDirectories(target.getParent());
+                Path tmp = Files.createTempFile(target.getParent(), sha, ".tmp");
+                Files.write(tmp, bytes);
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                disk.put(sha, (long) bytes.length);
+            } catch (IOException e) {
+                log.warn("⚠️ [BlobCache] failed to spill blob {}: {}", sha, e.getMessage());
+            }
+        });
+    }
+
+    private void deleteFile(String sha) {
+        try {
+            Files.deleteIfExists(file(sha));
+        } catch (IOException e) {
+            log.warn("⚠️ [BlobCache] failed to delete spilled blob {}: {}", sha, e.getMessage());
+        }
+    }
+
+    private Path file(String sha) {
+        // two-level fan-out keeps directories small
+        return directory.resolve(sha.substring(0, 2)).resolve(sha);
+    }
+}
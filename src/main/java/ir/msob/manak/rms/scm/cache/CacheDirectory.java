@@ -0,0 +1,56 @@
+package ir.msob.manak.rms.scm.cache;
+
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * The directory a disk cache owns under its configured path.
+ * <p>
+ * Caches are wiped on startup, but the configured path is operator input and may hold anything, so a cache
+ * only ever deletes its own {@code name} subdirectory, and only when that carries the marker file written
+ * when the cache created it. An existing non-empty subdirectory without the marker fails startup.
+ */
+final class CacheDirectory {
+
+    private static final String MARKER = ".rms-cache";
+
+    private CacheDirectory() {
+    }
+
+    /**
+     * Empties (or creates) {@code configuredPath/name} and marks it as owned by the cache.
+     */
+    static Path prepare(String configuredPath, String name) throws IOException {
+        Path directory = Path.of(configuredPath).resolve(name);
+        if (Files.isDirectory(directory) && !isEmpty(directory)) {
+            if (!Files.exists(directory.resolve(MARKER))) {
+                throw new IllegalStateException(directory + " was not created by this cache and is not empty; refusing to clear it");
+            }
+            FileSystemUtils.deleteRecursively(directory);
+        }
+        Files.createDirectories(directory);
+        if (!Files.exists(directory.resolve(MARKER))) {
+            Files.createFile(directory.resolve(MARKER));
+        }
+        return directory;
+    }
+
+    /**
+     * Deletes a directory returned by {@link #prepare}, provided it still carries the marker.
+     */
+    static void clear(Path directory) throws IOException {
+        if (Files.exists(directory.resolve(MARKER))) {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    private static boolean isEmpty(Path directory) throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.findAny().isEmpty();
+        }
+    }
+}
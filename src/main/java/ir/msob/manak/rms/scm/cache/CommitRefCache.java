@@ -0,0 +1,56 @@
+package ir.msob.manak.rms.scm.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.msob.manak.rms.scm.ScmProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * First tier of the content cache: {@code (repository, branch) -> commit SHA} with a short TTL.
+ * <p>
+ * Writers must {@link #invalidate} a branch after moving it so reads on this node see their own writes.
+ */
+@Component
+public class CommitRefCache {
+
+    private final ScmProperties.ContentCache properties;
+    private final LruCache<String, ResolvedRef> refs;
+
+    public CommitRefCache(ScmProperties scmProperties, MeterRegistry meterRegistry) {
+        this.properties = scmProperties.getContentCache();
+        this.refs = new LruCache<String, ResolvedRef>("ref-commit", properties.getMaxRefs(), r -> 1)
+                .bindTo(meterRegistry);
+    }
+
+    public Mono<String> resolve(String repository, String branch, Supplier<Mono<String>> loader) {
+        return resolve(repository, branch, properties.getRefTtl(), loader);
+    }
+
+    /**
+     * @param maxAge accept a cached SHA resolved at most this long ago ({@link Duration#ZERO} forces a reload)
+     */
+    public Mono<String> resolve(String repository, String branch, Duration maxAge, Supplier<Mono<String>> loader) {
+        String key = key(repository, branch);
+        ResolvedRef cached = refs.get(key);
+        long now = System.nanoTime();
+        if (cached != null && now - cached.resolvedAt() < maxAge.toNanos()) {
+            return Mono.just(cached.sha());
+        }
+        return loader.get()
+                .doOnNext(sha -> refs.put(key, new ResolvedRef(sha, System.nanoTime())));
+    }
+
+    public void invalidate(String repository, String branch) {
+        refs.remove(key(repository, branch));
+    }
+
+    private static String key(String repository, String branch) {
+        return repository + "@" + branch;
+    }
+
+    private record ResolvedRef(String sha, long resolvedAt) {
+    }
+}
@@ -0,0 +1,127 @@
+package ir.msob.manak.rms.scm.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Small thread-safe LRU map bounded by total weight (usually bytes) with hit/miss/eviction counters.
+ * <p>
+ * Meters (after {@link #bindTo}): {@code scm.cache.gets{cache,result=hit|miss}}, {@code scm.cache.evictions{cache}},
+ * {@code scm.cache.size{cache}} and {@code scm.cache.weight{cache}}.
+ */
+public class LruCache<K, V> {
+
+    private final String name;
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    private final BiConsumer<K, V> evictionListener;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long weight;
+
+    public LruCache(String name, long maxWeight, ToLongFunction<V> weigher) {
+        this(name, maxWeight, weigher, (k, v) -> {
+        });
+    }
+
+    /**
+     * @param evictionListener called (under the cache lock) for entries dropped to make room, not for explicit removals
+     */
+    public LruCache(String name, long maxWeight, ToLongFunction<V> weigher, BiConsumer<K, V> evictionListener) {
+        this.name = name;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.evictionListener = evictionListener;
+    }
+
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Entries heavier than the whole cache are not stored.
+     */
+    public synchronized void put(K key, V value) {
+        long entryWeight = weigher.applyAsLong(value);
+        if (entryWeight > maxWeight) {
+            remove(key);
+            return;
+        }
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            weight -= weigher.applyAsLong(previous);
+        }
+        weight += entryWeight;
+        Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            Map.Entry<K, V> eldest = it.next();
+            it.remove();
+            weight -= weigher.applyAsLong(eldest.getValue());
+            evictions.increment();
+            evictionListener.accept(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    public synchronized V remove(K key) {
+        V removed = entries.remove(key);
+        if (removed != null) {
+            weight -= weigher.applyAsLong(removed);
+        }
+        return removed;
+    }
+
+    public synchronized void removeIf(Predicate<K> keyPredicate) {
+        Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<K, V> entry = it.next();
+            if (keyPredicate.test(entry.getKey())) {
+                it.remove();
+                weight -= weigher.applyAsLong(entry.getValue());
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public LruCache<K, V> bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("scm.cache.gets", hits, LongAdder::doubleValue)
+                .tag("cache", name).tag("result", "hit").register(registry);
+        FunctionCounter.builder("scm.cache.gets", misses, LongAdder::doubleValue)
+                .tag("cache", name).tag("result", "miss").register(registry);
+        FunctionCounter.builder("scm.cache.evictions", evictions, LongAdder::doubleValue)
+                .tag("cache", name).register(registry);
+        Gauge.builder("scm.cache.size", this, LruCache::size)
+                .tag("cache", name).register(registry);
+        Gauge.builder("scm.cache.weight", this, LruCache::weight)
+                .tag("cache", name).register(registry);
+        return this;
+    }
+}
@@ -0,0 +1,218 @@
+package ir.msob.manak.rms.scm.http;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+import ir.msob.manak.rms.scm.ScmProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adaptive (AIMD) limit on concurrent calls per provider host.
+ * <p>
+ * Each host starts at {@code initial-limit} calls in flight. A call that answers without a host failure
+ * and no slower than {@code latency-tolerance} times the host's baseline latency (a slow moving average
+ * of answered calls) raises the limit by {@code 1/limit}, as long as the limit is actually being used; a
+ * host failure or a slow answer multiplies it by {@code backoff-ratio}. When a host browns out the limit
+ * falls within a few calls, so requests queue here (at most {@code max-queued}, for at most
+ * {@code max-wait}) rather than piling onto the connection pool and event loops. A call holds its slot
+ * until the response headers arrive.
+ * <p>
+ * Meters: {@code scm.http.concurrency.limit{host}}, {@code scm.http.concurrency.inflight{host}},
+ * {@code scm.http.concurrency.rejected{host}}.
+ */
+@Component
+public class AdaptiveConcurrencyLimiter implements ExchangeFilterFunction {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+    /**
+     * Weight of one answered call in the baseline latency average.
+     */
+    private static final double BASELINE_WEIGHT = 0.05;
+
+    private final ScmProperties.ConcurrencyLimit properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyLimiter(ScmProperties scmProperties, MeterRegistry meterRegistry) {
+        this.properties = scmProperties.getHttp().getConcurrencyLimit();
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (!properties.isEnabled()) {
+            return next.exchange(request);
+        }
+        String host = request.url().getHost();
+        Limit limit = limits.computeIfAbsent(host, this::limit);
+        return limit.acquire()
+                .timeout(properties.getMaxWait(), Mono.error(() -> {
+                    limit.rejected.increment();
+                    return new CapacityExceededException("No capacity for " + host + " within " + properties.getMaxWait()
+                            + " (limit " + limit.current() + ")");
+                }))
+                .then(Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    AtomicBoolean released = new AtomicBoolean();
+                    return next.exchange(request)
+                            .doOnNext(response -> {
+                                if (released.compareAndSet(false, true)) {
+                                    limit.release(System.nanoTime() - start, HostCircuitBreaker.isHostFailure(response) ? Outcome.DROP : Outcome.SAMPLE);
+                                }
+                            })
+                            .doOnError(e -> {
+                                if (released.compareAndSet(false, true)) {
+                                    limit.release(0, HostCircuitBreaker.isHostFailure(e) ? Outcome.DROP : Outcome.IGNORE);
+                                }
+                            })
+                            .doFinally(signal -> {
+                                if (released.compareAndSet(false, true)) {
+                                    limit.release(0, Outcome.IGNORE);
+                                }
+                            });
+                }));
+    }
+
+    private Limit limit(String host) {
+        Limit limit = new Limit(host, Counter.builder("scm.http.concurrency.rejected").tag("host", host).register(meterRegistry));
+        Gauge.builder("scm.http.concurrency.limit", limit, Limit::current)
+                .tag("host", host)
+                .register(meterRegistry);
+        Gauge.builder("scm.http.concurrency.inflight", limit, Limit::inFlight)
+                .tag("host", host)
+                .register(meterRegistry);
+        return limit;
+    }
+
+    private enum Outcome {
+        /**
+         * Healthy answer; its latency adjusts the limit.
+         */
+        SAMPLE,
+        /**
+         * Host failure: back off.
+         */
+        DROP,
+        /**
+         * Says nothing about the host (cancelled, or failed before reaching it).
+         */
+        IGNORE
+    }
+
+    private final class Limit {
+        private final String host;
+        private final Counter rejected;
+        /**
+         * guarded by {@code this}
+         */
+        private final Deque<MonoSink<Void>> waiting = new ArrayDeque<>();
+        private double limit = properties.getInitialLimit();
+        private int inFlight;
+        private double baselineNanos;
+
+        private Limit(String host, Counter rejected) {
+            this.host = host;
+            this.rejected = rejected;
+        }
+
+        Mono<Void> acquire() {
+            return Mono.create(sink -> {
+                synchronized (this) {
+                    if (inFlight < (int) limit) {
+                        inFlight++;
+                    } else if (waiting.size() >= properties.getMaxQueued()) {
+                        rejected.increment();
+                        sink.error(new CapacityExceededException("Too many calls queued for " + host + " (" + waiting.size() + ")"));
+                        return;
+                    } else {
+                        waiting.addLast(sink);
+                        sink.onCancel(() -> {
+                            boolean queued;
+                            synchronized (this) {
+                                queued = waiting.remove(sink);
+                            }
+                            if (!queued) {
+                                // granted a slot while being cancelled: hand it on
+                                release(0, Outcome.IGNORE);
+                            }
+                        });
+                        return;
+                    }
+                }
+                sink.success();
+            });
+        }
+
+        void release(long latencyNanos, Outcome outcome) {
+            List<MonoSink<Void>> granted = new ArrayList<>();
+            synchronized (this) {
+                inFlight--;
+                adjust(latencyNanos, outcome);
+                while (inFlight < (int) limit && !waiting.isEmpty()) {
+                    inFlight++;
+                    granted.add(waiting.pollFirst());
+                }
+            }
+            granted.forEach(MonoSink::success);
+        }
+
+        private void adjust(long latencyNanos, Outcome outcome) {
+            if (outcome == Outcome.IGNORE) {
+                return;
+            }
+            boolean slow = outcome == Outcome.SAMPLE && baselineNanos > 0
+                    && latencyNanos > baselineNanos * properties.getLatencyTolerance();
+            if (outcome == Outcome.SAMPLE) {
+                // slow answers count too, so a host that stays slower becomes the new normal
+                baselineNanos = baselineNanos == 0 ? latencyNanos : baselineNanos + BASELINE_WEIGHT * (latencyNanos - baselineNanos);
+            }
+            if (outcome == Outcome.DROP || slow) {
+                double previous = limit;
+                limit = Math.max(properties.getMinLimit(), limit * properties.getBackoffRatio());
+                if ((int) previous != (int) limit) {
+                    log.debug("📉 [ConcurrencyLimit] {} limit {} -> {} ({})", host, (int) previous, (int) limit,
+                            slow ? "slow: " + latencyNanos / 1_000_000 + "ms" : "failure");
+                }
+                return;
+            }
+            // only grow a limit that is being used, or an idle host would accumulate an unearned limit
+            if (inFlight + 1 >= limit / 2) {
+                limit = Math.min(properties.getMaxLimit(), limit + 1 / limit);
+            }
+        }
+
+        synchronized int current() {
+            return (int) limit;
+        }
+
+        synchronized int inFlight() {
+            return inFlight;
+        }
+    }
+
+    /**
+     * A call rejected here without reaching the host; it says nothing about the host's health.
+     */
+    public static final class CapacityExceededException extends CommonRuntimeException {
+        CapacityExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package ir.msob.manak.rms.scm.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.msob.manak.rms.scm.ScmProperties;
+import ir.msob.manak.rms.scm.cache.LruCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * HTTP response cache that revalidates with {@code If-None-Match} / {@code If-Modified-Since}.
+ * <p>
+ * Only GETs marked with the {@link #CACHEABLE} request attribute take part. Entries are keyed by URL,
+ * {@code Accept} header and a hash of the {@code Authorization} header, so one token never sees another
+ * token's responses. A {@code 304 Not Modified} is answered with the cached body; GitHub does not count
+ * 304s against the rate limit.
+ */
+@Component
+public class ConditionalRequestCache implements ExchangeFilterFunction {
+
+    public static final String CACHEABLE = ConditionalRequestCache.class.getName() + ".cacheable";
+
+    private static final Logger log = LoggerFactory.getLogger(ConditionalRequestCache.class);
+
+    private final ScmProperties.HttpCache properties;
+    private final LruCache<String, CachedResponse> cache;
+
+    public ConditionalRequestCache(ScmProperties scmProperties, MeterRegistry meterRegistry) {
+        this.properties = scmProperties.getHttpCache();
+        this.cache = new LruCache<String, CachedResponse>("http-conditional", properties.getMaxSize().toBytes(), r -> r.body().length)
+                .bindTo(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (!properties.isEnabled()
+                || request.method() != HttpMethod.GET
+                || !Boolean.TRUE.equals(request.attribute(CACHEABLE).orElse(false))) {
+            return next.exchange(request);
+        }
+        String key = key(request);
+        CachedResponse cached = cache.get(key);
+        ClientRequest conditional = cached == null ? request : ClientRequest.from(request)
+                .headers(headers -> {
+                    if (cached.etag() != null) {
+                        headers.setIfNoneMatch(cached.etag());
+                    }
+                    if (cached.lastModified() != null) {
+                        headers.set(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified());
+                    }
+                })
+                .build();
+
+        return next.exchange(conditional).flatMap(response -> {
+            if (cached != null && response.statusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                log.debug("♻️ [HttpCache] 304 for {}", request.url());
+                return response.releaseBody().thenReturn(cached.toResponse(response));
+            }
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(response.headers().asHttpHeaders());
+            String etag = headers.getETag();
+            String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+            if (!response.statusCode().is2xxSuccessful() || (etag == null && lastModified == null)) {
+                return Mono.just(response);
+            }
+            if (headers.getContentLength() > properties.getMaxEntrySize().toBytes()) {
+                return Mono.just(response);
+            }
+            // the body below is already decoded and re-framed
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.remove(HttpHeaders.CONTENT_ENCODING);
+            return DataBufferUtils.join(response.body(BodyExtractors.toDataBuffers()))
+                    .map(buffer -> {
+                        byte[] body = new byte[buffer.readableByteCount()];
+                        buffer.read(body);
+                        DataBufferUtils.release(buffer);
+                        return body;
+                    })
+                    .defaultIfEmpty(new byte[0])
+                    .map(body -> {
+                        CachedResponse entry = new CachedResponse(response.statusCode(), headers, etag, lastModified, body);
+                        if (body.length <= properties.getMaxEntrySize().toBytes()) {
+                            cache.put(key, entry);
+                        }
+                        return entry.toResponse(response);
+                    });
+        });
+    }
+
+    private static String key(ClientRequest request) {
+        String accept = request.headers().getFirst(HttpHeaders.ACCEPT);
+        String authorization = request.headers().getFirst(HttpHeaders.AUTHORIZATION);
+        return request.url() + "|" + accept + "|" + tokenIdentity(authorization);
+    }
+
+    /**
+     * One-way identity of a credential; raw tokens are never kept in cache keys.
+     */
+    public static String tokenIdentity(String authorization) {
+        if (authorization == null) {
+            return "anonymous";
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(authorization.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record CachedResponse(HttpStatusCode status, HttpHeaders headers, String etag, String lastModified,
+                                  byte[] body) {
+
+        /**
+         * Rebuilds a response around the cached body, keeping the codecs of the live response.
+         */
+        ClientResponse toResponse(ClientResponse live) {
+            return ClientResponse.create(status, live.strategies())
+                    .headers(h -> h.putAll(headers))
+                    .body(Flux.defer(() -> Flux.just((DataBuffer) DefaultDataBufferFactory.sharedInstance.wrap(body))))
+                    .build();
+        }
+    }
+}
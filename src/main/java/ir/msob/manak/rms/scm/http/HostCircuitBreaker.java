@@ -0,0 +1,218 @@
+package ir.msob.manak.rms.scm.http;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+import ir.msob.manak.rms.scm.ScmProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Circuit breaker per provider host, applied to every SCM HTTP call.
+ * <p>
+ * The outcomes of the last {@code window-size} calls to a host are kept; once at least
+ * {@code minimum-calls} are recorded and the share of host failures (5xx, connection errors, timeouts)
+ * reaches {@code failure-rate-threshold}, the breaker opens and calls fail immediately instead of each
+ * waiting for its own timeout. After {@code open-duration} it lets {@code half-open-probes} calls through:
+ * if they all succeed the breaker closes, if one fails it opens again. 4xx answers, rate limits included,
+ * say nothing about the host's health and count as successes; calls the {@link AdaptiveConcurrencyLimiter}
+ * rejects never reached the host and are not counted at all.
+ * <p>
+ * Meters: {@code scm.http.circuit.state{host}} (0 closed, 1 half-open, 2 open),
+ * {@code scm.http.circuit.rejected{host}}.
+ */
+@Component
+public class HostCircuitBreaker implements ExchangeFilterFunction {
+
+    private static final Logger log = LoggerFactory.getLogger(HostCircuitBreaker.class);
+
+    private final ScmProperties.CircuitBreaker properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    public HostCircuitBreaker(ScmProperties scmProperties, MeterRegistry meterRegistry) {
+        this.properties = scmProperties.getHttp().getCircuitBreaker();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Whether {@code e}, raised by the exchange itself, means the host is unhealthy.
+     */
+    static boolean isHostFailure(Throwable e) {
+        return e instanceof WebClientRequestException || e instanceof IOException || e instanceof TimeoutException;
+    }
+
+    static boolean isHostFailure(ClientResponse response) {
+        int status = response.statusCode().value();
+        return status >= 500 && status != HttpStatus.NOT_IMPLEMENTED.value();
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (!properties.isEnabled()) {
+            return next.exchange(request);
+        }
+        String host = request.url().getHost();
+        Circuit circuit = circuits.computeIfAbsent(host, this::circuit);
+        return Mono.defer(() -> {
+            if (!circuit.tryAcquire()) {
+                circuit.rejected.increment();
+                return Mono.error(new CommonRuntimeException("Circuit for " + host + " is open after repeated failures, "
+                        + "retry in " + circuit.retryInSeconds() + "s"));
+            }
+            AtomicBoolean recorded = new AtomicBoolean();
+            return next.exchange(request)
+                    .doOnNext(response -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            circuit.record(!isHostFailure(response));
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            if (e instanceof AdaptiveConcurrencyLimiter.CapacityExceededException) {
+                                // rejected by the limiter before reaching the host
+                                circuit.abandon();
+                            } else {
+                                circuit.record(!isHostFailure(e));
+                            }
+                        }
+                    })
+                    .doFinally(signal -> {
+                        // cancelled before an outcome: give a half-open probe back without judging the host
+                        if (recorded.compareAndSet(false, true)) {
+                            circuit.abandon();
+                        }
+                    });
+        });
+    }
+
+    private Circuit circuit(String host) {
+        Circuit circuit = new Circuit(host, Counter.builder("scm.http.circuit.rejected").tag("host", host).register(meterRegistry));
+        Gauge.builder("scm.http.circuit.state", circuit, Circuit::stateValue)
+                .tag("host", host)
+                .register(meterRegistry);
+        return circuit;
+    }
+
+    private enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    private final class Circuit {
+        private final String host;
+        private final Counter rejected;
+        /**
+         * ring buffer of the last {@code window-size} outcomes; everything is guarded by {@code this}
+         */
+        private final boolean[] failures = new boolean[Math.max(1, properties.getWindowSize())];
+        private int recorded;
+        private int failed;
+        private int position;
+        private State state = State.CLOSED;
+        private long openUntil;
+        private int probesInFlight;
+        private int probesSucceeded;
+
+        private Circuit(String host, Counter rejected) {
+            this.host = host;
+            this.rejected = rejected;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() < openUntil) {
+                    return false;
+                }
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesInFlight + probesSucceeded >= properties.getHalfOpenProbes()) {
+                    return false;
+                }
+                probesInFlight++;
+            }
+            return true;
+        }
+
+        synchronized void record(boolean success) {
+            if (state == State.HALF_OPEN) {
+                probesInFlight = Math.max(0, probesInFlight - 1);
+                if (!success) {
+                    open();
+                } else if (++probesSucceeded >= properties.getHalfOpenProbes()) {
+                    transition(State.CLOSED);
+                }
+                return;
+            }
+            if (state == State.OPEN) {
+                // a call admitted before the breaker opened
+                return;
+            }
+            if (recorded == failures.length && failures[position]) {
+                failed--;
+            }
+            failures[position] = !success;
+            if (!success) {
+                failed++;
+            }
+            position = (position + 1) % failures.length;
+            recorded = Math.min(recorded + 1, failures.length);
+            if (recorded >= properties.getMinimumCalls() && failed * 100 >= properties.getFailureRateThreshold() * recorded) {
+                open();
+            }
+        }
+
+        synchronized void abandon() {
+            if (state == State.HALF_OPEN) {
+                probesInFlight = Math.max(0, probesInFlight - 1);
+            }
+        }
+
+        synchronized long retryInSeconds() {
+            return Math.max(0, (openUntil - System.currentTimeMillis() + 999) / 1000);
+        }
+
+        synchronized int stateValue() {
+            return state.ordinal();
+        }
+
+        private void open() {
+            openUntil = System.currentTimeMillis() + properties.getOpenDuration().toMillis();
+            transition(State.OPEN);
+        }
+
+        private void transition(State to) {
+            if (state != to) {
+                if (to == State.OPEN) {
+                    log.warn("🔌 [CircuitBreaker] {} {} -> OPEN ({} of the last {} calls failed), failing fast for {}",
+                            host, state, failed, recorded, properties.getOpenDuration());
+                } else {
+                    log.info("🔌 [CircuitBreaker] {} {} -> {}", host, state, to);
+                }
+            }
+            state = to;
+            probesInFlight = 0;
+            probesSucceeded = 0;
+            if (to == State.CLOSED) {
+                recorded = 0;
+                failed = 0;
+                position = 0;
+            }
+        }
+    }
+}
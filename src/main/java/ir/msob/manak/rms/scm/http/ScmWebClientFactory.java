@@ -0,0 +1,105 @@
+package ir.msob.manak.rms.scm.http;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import ir.msob.manak.rms.scm.ScmProperties;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP client shared by all {@link ir.msob.manak.rms.scm.scmprovider.ScmProviderService} implementations.
+ * <p>
+ * One named connection provider ({@value #POOL_NAME}) keeps a bounded pool per remote host, with idle
+ * eviction and pending-acquire limits. Pool gauges are published to Micrometer as
+ * {@code reactor.netty.connection.provider.*} tagged {@code name=scm}.
+ * Providers call {@link #create(String, ExchangeFilterFunction...)} with their API base URL; all returned
+ * clients share the pool and apply, outermost first: the {@link ConditionalRequestCache}, the provider's
+ * own filters, the {@link HostCircuitBreaker} and the {@link AdaptiveConcurrencyLimiter}. The host filters
+ * sit innermost so that they only see time spent on the wire, not waits in provider filters such as
+ * rate limiting.
+ */
+@Component
+public class ScmWebClientFactory {
+
+    public static final String POOL_NAME = "scm";
+
+    private final ConnectionProvider connectionProvider;
+    private final WebClient webClient;
+    private final List<ExchangeFilterFunction> hostFilters;
+
+    /**
+     * Built from Spring's {@link WebClient.Builder} so client request observations (metrics) apply.
+     */
+    public ScmWebClientFactory(ScmProperties scmProperties, WebClient.Builder webClientBuilder, ConditionalRequestCache conditionalRequestCache,
+                               HostCircuitBreaker circuitBreaker, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        ScmProperties.Http http = scmProperties.getHttp();
+        this.hostFilters = List.of(circuitBreaker, concurrencyLimiter);
+        this.connectionProvider = connectionProvider(http);
+        this.webClient = webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient(http, connectionProvider)))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) http.getMaxInMemorySize().toBytes()))
+                .filter(conditionalRequestCache)
+                .build();
+    }
+
+    /**
+     * @param providerFilters applied after the cache and before the per-host filters, in this order
+     */
+    public WebClient create(String baseUrl, ExchangeFilterFunction... providerFilters) {
+        return webClient.mutate()
+                .baseUrl(baseUrl)
+                .filters(filters -> {
+                    filters.addAll(List.of(providerFilters));
+                    filters.addAll(hostFilters);
+                })
+                .build();
+    }
+
+    @PreDestroy
+    public void dispose() {
+        connectionProvider.dispose();
+    }
+
+    private static ConnectionProvider connectionProvider(ScmProperties.Http http) {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder(POOL_NAME)
+                .maxConnections(http.getMaxConnections())
+                .pendingAcquireMaxCount(http.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(http.getPendingAcquireTimeout())
+                .maxIdleTime(http.getMaxIdleTime())
+                .maxLifeTime(http.getMaxLifeTime())
+                .evictInBackground(http.getEvictionInterval())
+                .metrics(true);
+        http.getHostMaxConnections().forEach((host, max) ->
+                builder.forRemoteHost(InetSocketAddress.createUnresolved(host, 443), spec -> spec.maxConnections(max)));
+        return builder.build();
+    }
+
+    private static HttpClient httpClient(ScmProperties.Http http, ConnectionProvider connectionProvider) {
+        HttpClient client = HttpClient.create(connectionProvider)
+                .followRedirect(true)
+                .keepAlive(true)
+                .compress(http.isCompression())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) http.getConnectTimeout().toMillis())
+                .responseTimeout(http.getResponseTimeout())
+                .doOnConnected(connection -> connection
+                        .addHandlerLast(new ReadTimeoutHandler(http.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS))
+                        .addHandlerLast(new WriteTimeoutHandler(http.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS)));
+        if (http.isHttp2()) {
+            // H2 is only offered over TLS via ALPN; plain-HTTP hosts stay on HTTP/1.1
+            client = client.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+        return client;
+    }
+}
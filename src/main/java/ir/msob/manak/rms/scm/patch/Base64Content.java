@@ -0,0 +1,138 @@
+package ir.msob.manak.rms.scm.patch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Classifies and decodes base64 patch content without intermediate copies.
+ * <p>
+ * {@link #isBase64} is a single pass over the characters that allocates nothing; {@link #decode} validates
+ * in one pass and decodes in a second, straight into an array of the exact output size. Line breaks are
+ * ignored, as in MIME-wrapped output; any other character outside the standard alphabet, data after
+ * padding, or a length that is not a multiple of four means the content is not base64. Requiring the
+ * padding keeps most plain text from being taken for base64; callers that know pass an {@link Encoding}.
+ */
+public final class Base64Content {
+
+    private static final int INVALID = -1;
+    private static final int[] ALPHABET = new int[128];
+
+    static {
+        Arrays.fill(ALPHABET, INVALID);
+        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < chars.length(); i++) {
+            ALPHABET[chars.charAt(i)] = i;
+        }
+    }
+
+    private Base64Content() {
+    }
+
+    /**
+     * How the caller says content is encoded; {@link #AUTO} falls back to {@link #isBase64}.
+     */
+    public enum Encoding {
+        AUTO, PLAIN, BASE64;
+
+        /**
+         * {@code null} or blank means {@link #AUTO}; {@code utf-8}/{@code text} are accepted for {@link #PLAIN}.
+         */
+        public static Encoding of(String value) {
+            if (value == null || value.isBlank()) {
+                return AUTO;
+            }
+            return switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "auto" -> AUTO;
+                case "plain", "text", "utf-8", "utf8" -> PLAIN;
+                case "base64" -> BASE64;
+                default -> throw new IllegalArgumentException("Unknown encoding '" + value + "', expected auto, plain or base64");
+            };
+        }
+
+        /**
+         * Whether {@code content} is base64 under this encoding; for {@link #BASE64} it must also be valid.
+         */
+        public boolean isBase64(CharSequence content) {
+            return switch (this) {
+                case PLAIN -> false;
+                case AUTO -> Base64Content.isBase64(content);
+                case BASE64 -> {
+                    if (!Base64Content.isBase64(content)) {
+                        throw new IllegalArgumentException("Content declared as base64 is not valid base64");
+                    }
+                    yield true;
+                }
+            };
+        }
+    }
+
+    public static boolean isBase64(CharSequence s) {
+        return s != null && decodedLength(s) >= 0;
+    }
+
+    public static byte[] decode(CharSequence s) {
+        int length = decodedLength(s);
+        if (length < 0) {
+            throw new IllegalArgumentException("Not valid base64");
+        }
+        byte[] out = new byte[length];
+        int bits = 0;
+        int count = 0;
+        int position = 0;
+        for (int i = 0; i < s.length() && position < length; i++) {
+            char c = s.charAt(i);
+            if (c == '\n' || c == '\r' || c == '=') {
+                continue;
+            }
+            bits = (bits << 6) | ALPHABET[c];
+            if (++count == 4) {
+                out[position++] = (byte) (bits >> 16);
+                out[position++] = (byte) (bits >> 8);
+                out[position++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+        // trailing quantum shortened by padding
+        if (count == 3) {
+            out[position++] = (byte) (bits >> 10);
+            out[position] = (byte) (bits >> 2);
+        } else if (count == 2) {
+            out[position] = (byte) (bits >> 4);
+        }
+        return out;
+    }
+
+    public static String decodeToString(CharSequence s) {
+        return new String(decode(s), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decoded size in bytes, or -1 when {@code s} is not padded standard base64.
+     */
+    private static int decodedLength(CharSequence s) {
+        int data = 0;
+        int padding = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\n' || c == '\r') {
+                continue;
+            }
+            if (c == '=') {
+                if (++padding > 2) {
+                    return -1;
+                }
+            } else if (padding > 0 || c >= 128 || ALPHABET[c] == INVALID) {
+                return -1;
+            } else {
+                data++;
+            }
+        }
+        int total = data + padding;
+        if (data == 0 || total % 4 != 0) {
+            return -1;
+        }
+        return total / 4 * 3 - padding;
+    }
+}
@@ -0,0 +1,34 @@
+package ir.msob.manak.rms.scm.patch;
+
+import java.util.List;
+
+/**
+ * All hunks of one file in a unified diff.
+ *
+ * @param oldPath path before the change, {@code null} for a new file ({@code /dev/null})
+ * @param newPath path after the change, {@code null} for a deleted file ({@code /dev/null})
+ * @param newMode git file mode from a {@code new file mode} / {@code new mode} header (e.g. {@code 100755}),
+ *                {@code null} when the diff does not set one and the file keeps its current mode
+ * @param hunks   hunks in file order
+ */
+public record FileDiff(String oldPath, String newPath, String newMode, List<Hunk> hunks) {
+
+    public boolean isNewFile() {
+        return oldPath == null;
+    }
+
+    public boolean isDeletedFile() {
+        return newPath == null;
+    }
+
+    public boolean isRename() {
+        return oldPath != null && newPath != null && !oldPath.equals(newPath);
+    }
+
+    /**
+     * The path the change ends up at (the old path for deletions).
+     */
+    public String path() {
+        return newPath != null ? newPath : oldPath;
+    }
+}
@@ -0,0 +1,12 @@
+package ir.msob.manak.rms.scm.patch;
+
+import java.util.List;
+
+/**
+ * One {@code @@ -oldStart,oldCount +newStart,newCount @@} block.
+ * <p>
+ * {@code lines} keep their leading marker ({@code ' '}, {@code '-'}, {@code '+'} or {@code '\'} for
+ * "No newline at end of file"), with any trailing {@code '\r'} removed.
+ */
+public record Hunk(int oldStart, int oldCount, int newStart, int newCount, List<String> lines) {
+}
@@ -0,0 +1,174 @@
+package ir.msob.manak.rms.scm.patch;
+
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+
+import java.util.List;
+
+/**
+ * Applies the hunks of a {@link FileDiff} to the original file text in a single forward pass.
+ * <p>
+ * The original is indexed once by line start offsets; unchanged regions are copied straight from it into
+ * one output buffer and context/removed lines are verified in place with {@link String#regionMatches}, so
+ * no per-hunk copy of the file is built. A hunk whose lines are not at its stated position (the file has
+ * shifted since the diff was made) is applied at the nearest position where they match, like
+ * {@code patch} does with an offset; there is no fuzz, every context and removed line must match exactly.
+ * Line endings of the original are preserved; added lines use the original's dominant separator.
+ */
+public final class UnifiedDiffApplier {
+
+    private UnifiedDiffApplier() {
+    }
+
+    /**
+     * @param original current file content ({@code ""} for new files)
+     * @param diff     the file's hunks
+     * @return the patched content, or {@code null} when the diff deletes the file
+     */
+    public static String apply(String original, FileDiff diff) {
+        if (diff.isDeletedFile()) {
+            return null;
+        }
+        String text = original == null ? "" : original;
+        String newline = text.contains("\r\n") ? "\r\n" : "\n";
+        int[] starts = lineStarts(text);
+
+        StringBuilder out = new StringBuilder(text.length() + addedLength(diff.hunks()));
+        int line = 0;  // 0-based index of the first original line not yet copied or consumed
+
+        for (Hunk hunk : diff.hunks()) {
+            // a pure insertion ("-n,0") goes after line n
+            int expected = hunk.oldCount() == 0 ? hunk.oldStart() : hunk.oldStart() - 1;
+            int at = locate(text, starts, hunk, expected, line);
+            if (at < 0) {
+                String reason = expected < line ? "overlaps the previous hunk"
+                        : expected > starts.length - 1 ? "starts beyond the end of the file"
+                        : "does not match the file at line " + (expected + 1);
+                throw new CommonRuntimeException(failure(diff, hunk, reason));
+            }
+            out.append(text, starts[line], starts[at]);
+            line = at;
+
+            List<String> lines = hunk.lines();
+            for (int i = 0; i < lines.size(); i++) {
+                String hunkLine = lines.get(i);
+                char op = hunkLine.charAt(0);
+                if (op == '+') {
+                    out.append(hunkLine, 1, hunkLine.length());
+                    if (!missingNewline(lines, i)) {
+                        out.append(newline);
+                    }
+                } else if (op != '\\') {
+                    // ' ' is kept as it is in the original, '-' is dropped
+                    if (op == ' ') {
+                        out.append(text, starts[line], starts[line + 1]);
+                    }
+                    line++;
+                }
+            }
+        }
+        out.append(text, starts[line], text.length());
+        return out.toString();
+    }
+
+    /**
+     * First line of the original where the hunk's context and removed lines match, searching outwards from
+     * {@code expected} but never before {@code from}; -1 when they match nowhere.
+     */
+    private static int locate(String text, int[] starts, Hunk hunk, int expected, int from) {
+        int lineCount = starts.length - 1;
+        int oldLines = 0;
+        for (String l : hunk.lines()) {
+            if (l.charAt(0) == ' ' || l.charAt(0) == '-') {
+                oldLines++;
+            }
+        }
+        if (oldLines == 0) {
+            // nothing to anchor on: insert where the header says
+            return expected >= from && expected <= lineCount ? expected : -1;
+        }
+        int last = lineCount - oldLines;
+        for (int delta = 0; ; delta++) {
+            int after = expected + delta;
+            int before = expected - delta;
+            if (after > last && before < from) {
+                return -1;
+            }
+            if (after >= from && after <= last && matchesAt(text, starts, hunk, after)) {
+                return after;
+            }
+            if (delta > 0 && before >= from && before <= last && matchesAt(text, starts, hunk, before)) {
+                return before;
+            }
+        }
+    }
+
+    private static boolean matchesAt(String text, int[] starts, Hunk hunk, int at) {
+        int line = at;
+        for (String hunkLine : hunk.lines()) {
+            char op = hunkLine.charAt(0);
+            if (op == ' ' || op == '-') {
+                if (!matches(text, starts[line], starts[line + 1], hunkLine)) {
+                    return false;
+                }
+                line++;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Offset of every line of {@code text}, plus {@code text.length()} as the end of the last one.
+     */
+    private static int[] lineStarts(String text) {
+        int count = 0;
+        for (int nl = text.indexOf('\n'); nl >= 0; nl = text.indexOf('\n', nl + 1)) {
+            count++;
+        }
+        boolean unterminated = !text.isEmpty() && text.charAt(text.length() - 1) != '\n';
+        int[] starts = new int[count + (unterminated ? 1 : 0) + 1];
+        int line = 1;
+        for (int nl = text.indexOf('\n'); nl >= 0; nl = text.indexOf('\n', nl + 1)) {
+            starts[line++] = nl + 1;
+        }
+        starts[starts.length - 1] = text.length();
+        return starts;
+    }
+
+    /**
+     * Whether the hunk line at {@code i} is followed by a "\ No newline at end of file" marker.
+     */
+    private static boolean missingNewline(List<String> lines, int i) {
+        return i + 1 < lines.size() && lines.get(i + 1).charAt(0) == '\\';
+    }
+
+    /**
+     * Compares the original line {@code [start, end)} (without its terminator) with the hunk line minus its marker.
+     */
+    private static boolean matches(String text, int start, int end, String hunkLine) {
+        if (end > start && text.charAt(end - 1) == '\n') {
+            end--;
+        }
+        if (end > start && text.charAt(end - 1) == '\r') {
+            end--;
+        }
+        int length = hunkLine.length() - 1;
+        return end - start == length && text.regionMatches(start, hunkLine, 1, length);
+    }
+
+    private static int addedLength(List<Hunk> hunks) {
+        int added = 0;
+        for (Hunk hunk : hunks) {
+            for (String l : hunk.lines()) {
+                if (l.charAt(0) == '+') {
+                    added += l.length();
+                }
+            }
+        }
+        return added;
+    }
+
+    private static String failure(FileDiff diff, Hunk hunk, String reason) {
+        return String.format("Hunk @@ -%d,%d +%d,%d @@ of %s %s",
+                hunk.oldStart(), hunk.oldCount(), hunk.newStart(), hunk.newCount(), diff.path(), reason);
+    }
+}
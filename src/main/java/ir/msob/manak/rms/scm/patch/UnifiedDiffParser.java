@@ -0,0 +1,238 @@
+package ir.msob.manak.rms.scm.patch;
+
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parser for unified diffs as produced by {@code git diff} / {@code diff -u}.
+ * <p>
+ * The input is scanned once, line by line, without splitting it into an intermediate array.
+ * Hunk bodies are read by their declared line counts, so removed lines that themselves start with
+ * {@code "-- "} are not mistaken for file headers.
+ */
+public final class UnifiedDiffParser {
+
+    private static final String DEV_NULL = "/dev/null";
+
+    private UnifiedDiffParser() {
+    }
+
+    /**
+     * Patches are either the legacy JSON array of {@code {path, content}} entries or a unified diff.
+     */
+    public static boolean isUnifiedDiff(String patch) {
+        if (patch == null) {
+            return false;
+        }
+        for (int i = 0; i < patch.length(); i++) {
+            char c = patch.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c != '[';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @throws CommonRuntimeException if the diff is malformed, binary or touches no file at all
+     */
+    public static List<FileDiff> parse(String diff) {
+        LineReader reader = new LineReader(diff);
+        List<FileDiff> files = new ArrayList<>();
+
+        String headerOldPath = null;
+        String headerNewPath = null;
+        String oldPath = null;
+        String newPath = null;
+        String newMode = null;
+        boolean inFile = false;
+        List<Hunk> hunks = new ArrayList<>();
+
+        String line;
+        while ((line = reader.next()) != null) {
+            if (line.startsWith("diff --git ")) {
+                if (inFile) {
+                    files.add(toFileDiff(headerOldPath, headerNewPath, oldPath, newPath, newMode, hunks));
+                }
+                inFile = true;
+                hunks = new ArrayList<>();
+                oldPath = null;
+                newPath = null;
+                newMode = null;
+                String[] paths = gitHeaderPaths(line.substring("diff --git ".length()));
+                headerOldPath = paths[0];
+                headerNewPath = paths[1];
+            } else if (line.startsWith("--- ") && reader.peekStartsWith("+++ ")) {
+                if (inFile && !hunks.isEmpty()) {
+                    // plain "diff -u" output without "diff --git" separators
+                    files.add(toFileDiff(headerOldPath, headerNewPath, oldPath, newPath, newMode, hunks));
+                    hunks = new ArrayList<>();
+                    headerOldPath = null;
+                    headerNewPath = null;
+                    newMode = null;
+                }
+                inFile = true;
+                oldPath = headerPath(line.substring(4), "a/");
+                newPath = headerPath(reader.next().substring(4), "b/");
+            } else if (line.startsWith("rename from ")) {
+                headerOldPath = line.substring("rename from ".length());
+            } else if (line.startsWith("rename to ")) {
+                headerNewPath = line.substring("rename to ".length());
+            } else if (line.startsWith("new file mode ")) {
+                headerOldPath = null;
+                newMode = line.substring("new file mode ".length()).trim();
+            } else if (line.startsWith("new mode ")) {
+                newMode = line.substring("new mode ".length()).trim();
+            } else if (line.startsWith("deleted file mode")) {
+                headerNewPath = null;
+            } else if (line.startsWith("Binary files ") || line.startsWith("GIT binary patch")) {
+                throw new CommonRuntimeException("Binary patches are not supported: " + line);
+            } else if (line.startsWith("@@ ")) {
+                if (!inFile) {
+                    throw new CommonRuntimeException("Hunk without file header at line " + reader.lineNumber());
+                }
+                hunks.add(readHunk(line, reader));
+            }
+            // anything else (index, old mode, similarity, preamble text) carries nothing we need
+        }
+        if (inFile) {
+            files.add(toFileDiff(headerOldPath, headerNewPath, oldPath, newPath, newMode, hunks));
+        }
+        if (files.isEmpty()) {
+            throw new CommonRuntimeException("No file headers found in diff");
+        }
+        return files;
+    }
+
+    private static FileDiff toFileDiff(String headerOldPath, String headerNewPath, String oldPath, String newPath,
+                                       String newMode, List<Hunk> hunks) {
+        // "---"/"+++" lines win; header paths cover renames and new/deleted files without hunks
+        boolean hasFileLines = oldPath != null || newPath != null;
+        String from = hasFileLines ? oldPath : headerOldPath;
+        String to = hasFileLines ? newPath : headerNewPath;
+        if (from == null && to == null) {
+            throw new CommonRuntimeException("Diff entry without file paths");
+        }
+        return new FileDiff(from, to, to == null ? null : newMode, List.copyOf(hunks));
+    }
+
+    private static Hunk readHunk(String header, LineReader reader) {
+        int end = header.indexOf(" @@", 3);
+        if (end < 0) {
+            throw new CommonRuntimeException("Malformed hunk header at line " + reader.lineNumber() + ": " + header);
+        }
+        String[] ranges = header.substring(3, end).split(" ");
+        if (ranges.length != 2 || ranges[0].charAt(0) != '-' || ranges[1].charAt(0) != '+') {
+            throw new CommonRuntimeException("Malformed hunk header at line " + reader.lineNumber() + ": " + header);
+        }
+        int[] oldRange = range(ranges[0].substring(1));
+        int[] newRange = range(ranges[1].substring(1));
+
+        int oldRemaining = oldRange[1];
+        int newRemaining = newRange[1];
+        List<String> lines = new ArrayList<>(oldRemaining + newRemaining);
+        while (oldRemaining > 0 || newRemaining > 0) {
+            String line = reader.next();
+            if (line == null) {
+                throw new CommonRuntimeException("Unexpected end of diff inside hunk " + header);
+            }
+            char op = line.isEmpty() ? ' ' : line.charAt(0);
+            switch (op) {
+                case ' ' -> {
+                    oldRemaining--;
+                    newRemaining--;
+                    // some tools drop the single space of empty context lines
+                    lines.add(line.isEmpty() ? " " : line);
+                }
+                case '-' -> {
+                    oldRemaining--;
+                    lines.add(line);
+                }
+                case '+' -> {
+                    newRemaining--;
+                    lines.add(line);
+                }
+                case '\\' -> lines.add(line);
+                default ->
+                        throw new CommonRuntimeException("Unexpected line in hunk at line " + reader.lineNumber() + ": " + line);
+            }
+            if (oldRemaining < 0 || newRemaining < 0) {
+                throw new CommonRuntimeException("Hunk body does not match its header " + header);
+            }
+        }
+        if (reader.peekStartsWith("\\")) {
+            lines.add(reader.next());
+        }
+        return new Hunk(oldRange[0], oldRange[1], newRange[0], newRange[1], lines);
+    }
+
+    /**
+     * Parses {@code "start,count"} or {@code "start"} (count 1).
+     */
+    private static int[] range(String spec) {
+        int comma = spec.indexOf(',');
+        try {
+            if (comma < 0) {
+                return new int[]{Integer.parseInt(spec), 1};
+            }
+            return new int[]{Integer.parseInt(spec.substring(0, comma)), Integer.parseInt(spec.substring(comma + 1))};
+        } catch (NumberFormatException e) {
+            throw new CommonRuntimeException("Malformed hunk range: " + spec);
+        }
+    }
+
+    private static String headerPath(String raw, String prefix) {
+        // "--- a/path\t2024-01-01 ..." -> "path"
+        int tab = raw.indexOf('\t');
+        String path = tab >= 0 ? raw.substring(0, tab) : raw.trim();
+        if (DEV_NULL.equals(path)) {
+            return null;
+        }
+        return path.startsWith(prefix) ? path.substring(prefix.length()) : path;
+    }
+
+    private static String[] gitHeaderPaths(String spec) {
+        // "a/old b/new"; only reliable for paths without spaces, which is all it is used for (renames without hunks)
+        int split = spec.indexOf(" b/");
+        if (!spec.startsWith("a/") || split < 0) {
+            return new String[]{null, null};
+        }
+        return new String[]{spec.substring(2, split), spec.substring(split + 3)};
+    }
+
+    /**
+     * Sequential line access over the diff text; lines are returned without their terminator.
+     */
+    private static final class LineReader {
+        private final String text;
+        private int pos;
+        private int lineNumber;
+
+        private LineReader(String text) {
+            this.text = text == null ? "" : text;
+        }
+
+        String next() {
+            if (pos >= text.length()) {
+                return null;
+            }
+            int nl = text.indexOf('\n', pos);
+            int end = nl < 0 ? text.length() : nl;
+            int contentEnd = end > pos && text.charAt(end - 1) == '\r' ? end - 1 : end;
+            String line = text.substring(pos, contentEnd);
+            pos = nl < 0 ? text.length() : nl + 1;
+            lineNumber++;
+            return line;
+        }
+
+        boolean peekStartsWith(String prefix) {
+            return text.startsWith(prefix, pos);
+        }
+
+        int lineNumber() {
+            return lineNumber;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package ir.msob.manak.rms.scm.scmprovider;
+
+import ir.msob.manak.rms.scm.ScmProperties;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Runs one network call per file of a multi-file operation with bounded concurrency.
+ * <p>
+ * Calls are issued with {@code flatMap}, so a large patch takes roughly as long as its slowest file rather
+ * than the sum of all of them. The limit, {@link ScmProperties.Upload#concurrencyFor(String)}, is shared
+ * by every operation on the same repository: concurrent patches to one repository queue for the same
+ * permits instead of each bringing its own. Results are re-ordered to match the input list, and per-file
+ * latency is logged.
+ */
+@Component
+@RequiredArgsConstructor
+public class BoundedParallelStage {
+
+    private static final Logger log = LoggerFactory.getLogger(BoundedParallelStage.class);
+
+    private final ScmProperties scmProperties;
+    private final Map<String, Permits> permits = new ConcurrentHashMap<>();
+
+    /**
+     * @param repository repository path, used to pick the concurrency limit
+     * @param stageName  label used in logs (e.g. "blob-upload")
+     * @param items      inputs, one call each
+     * @param keyFn      human-readable key of an item (usually the file path)
+     * @param operation  the call to make for an item
+     * @return results in the same order as {@code items}
+     */
+    public <T, R> Mono<List<R>> execute(String repository,
+                                        String stageName,
+                                        List<T> items,
+                                        Function<T, String> keyFn,
+                                        Function<T, Mono<R>> operation) {
+        if (items.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        int concurrency = scmProperties.getUpload().concurrencyFor(repository);
+        Permits repositoryPermits = permits.computeIfAbsent(repository, key -> new Permits());
+        long stageStart = System.nanoTime();
+
+        return Flux.range(0, items.size())
+                .flatMap(index -> repositoryPermits.acquire(concurrency).then(Mono.defer(() -> {
+                    T item = items.get(index);
+                    long start = System.nanoTime();
+                    return Mono.defer(() -> operation.apply(item))
+                            .map(value -> new Timed<>(index, keyFn.apply(item), value, Duration.ofNanos(System.nanoTime() - start)))
+                            .doFinally(signal -> repositoryPermits.release(concurrency));
+                })), concurrency)
+                .collectList()
+                .map(timed -> {
+                    timed.sort(Comparator.comparingInt(Timed::index));
+                    report(repository, stageName, concurrency, timed, Duration.ofNanos(System.nanoTime() - stageStart));
+                    return timed.stream().map(Timed::value).toList();
+                });
+    }
+
+    private <R> void report(String repository, String stageName, int concurrency, List<Timed<R>> timed, Duration total) {
+        if (log.isDebugEnabled()) {
+            timed.forEach(t -> log.debug("⏱ [{}] repo={}, file={}, latency={}ms", stageName, repository, t.key(), t.latency().toMillis()));
+        }
+        timed.stream()
+                .max(Comparator.comparing(Timed::latency))
+                .ifPresent(slowest -> log.info("⏱ [{}] repo={}, files={}, concurrency={}, total={}ms, slowest={} ({}ms)",
+                        stageName, repository, timed.size(), concurrency, total.toMillis(), slowest.key(), slowest.latency().toMillis()));
+    }
+
+    private record Timed<R>(int index, String key, R value, Duration latency) {
+    }
+
+    /**
+     * In-flight calls against one repository, across all stages and patches.
+     */
+    private static final class Permits {
+        /**
+         * guarded by {@code this}
+         */
+        private final Deque<MonoSink<Void>> waiting = new ArrayDeque<>();
+        private int inFlight;
+
+        Mono<Void> acquire(int limit) {
+            return Mono.create(sink -> {
+                synchronized (this) {
+                    if (inFlight >= limit) {
+                        waiting.addLast(sink);
+                        sink.onCancel(() -> {
+                            boolean queued;
+                            synchronized (this) {
+                                queued = waiting.remove(sink);
+                            }
+                            if (!queued) {
+                                // granted a permit while being cancelled: hand it on
+                                release(limit);
+                            }
+                        });
+                        return;
+                    }
+                    inFlight++;
+                }
+                sink.success();
+            });
+        }
+
+        void release(int limit) {
+            MonoSink<Void> next;
+            synchronized (this) {
+                inFlight--;
+                if (inFlight >= limit || waiting.isEmpty()) {
+                    return;
+                }
+                inFlight++;
+                next = waiting.pollFirst();
+            }
+            next.success();
+        }
+    }
+}
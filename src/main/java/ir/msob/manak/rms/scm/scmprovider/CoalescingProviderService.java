@@ -0,0 +1,138 @@
+package ir.msob.manak.rms.scm.scmprovider;
+
+import ir.msob.manak.domain.model.rms.dto.*;
+import ir.msob.manak.rms.scm.http.ConditionalRequestCache;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Puts {@link SingleFlight} in front of a provider's read methods; writes pass straight through.
+ * <p>
+ * Calls coalesce only when repository, credential, arguments and requested freshness all match, so a
+ * caller that asked for {@link ReadFreshness#fresh fresh} data never joins a call that may be stale.
+ */
+public class CoalescingProviderService implements ScmProviderService {
+
+    private final ScmProviderService delegate;
+    private final SingleFlight singleFlight;
+
+    public CoalescingProviderService(ScmProviderService delegate, SingleFlight singleFlight) {
+        this.delegate = delegate;
+        this.singleFlight = singleFlight;
+    }
+
+    @Override
+    public Mono<Boolean> validateAccess(ScmContext context) {
+        return Mono.deferContextual(c -> singleFlight.mono("validateAccess", key(c, context),
+                () -> delegate.validateAccess(context)));
+    }
+
+    @Override
+    public Mono<String> resolveCommitSha(ScmContext ctx, BranchRef branch) {
+        return Mono.deferContextual(c -> singleFlight.mono("resolveCommitSha", key(c, ctx, branch.getName()),
+                () -> delegate.resolveCommitSha(ctx, branch)));
+    }
+
+    @Override
+    public Flux<BranchRef> listBranches(ScmContext ctx) {
+        return Mono.deferContextual(c -> singleFlight.mono("listBranches", key(c, ctx),
+                        () -> delegate.listBranches(ctx).collectList()))
+                .flatMapIterable(branches -> branches);
+    }
+
+    @Override
+    public Mono<FileContent> readFile(ScmContext ctx, BranchRef branch, String filePath) {
+        return Mono.deferContextual(c -> singleFlight.mono("readFile", key(c, ctx, branch.getName(), filePath),
+                () -> delegate.readFile(ctx, branch, filePath)));
+    }
+
+    /**
+     * Passed through: streamed bytes cannot be shared between subscribers without buffering them.
+     */
+    @Override
+    public Flux<DataBuffer> streamFile(ScmContext ctx, BranchRef branch, String filePath) {
+        return delegate.streamFile(ctx, branch, filePath);
+    }
+
+    @Override
+    public Mono<Long> fileSize(ScmContext ctx, BranchRef branch, String filePath) {
+        return Mono.deferContextual(c -> singleFlight.mono("fileSize", key(c, ctx, branch.getName(), filePath),
+                () -> delegate.fileSize(ctx, branch, filePath)));
+    }
+
+    /**
+     * Passed through: batches rarely repeat exactly, and their files are shared through the provider's caches.
+     */
+    @Override
+    public Flux<FileContent> readFiles(ScmContext ctx, BranchRef branch, List<String> filePaths) {
+        return delegate.readFiles(ctx, branch, filePaths);
+    }
+
+    @Override
+    public Flux<String> listFiles(ScmContext ctx, BranchRef branch) {
+        return Mono.deferContextual(c -> singleFlight.mono("listFiles", key(c, ctx, branch.getName()),
+                        () -> delegate.listFiles(ctx, branch).collectList()))
+                .flatMapIterable(paths -> paths);
+    }
+
+    /**
+     * Passed through: archives are coalesced per commit by {@code ArchiveCache}, which replays them from disk.
+     */
+    @Override
+    public Flux<DataBuffer> downloadArchive(ScmContext ctx, BranchRef branch) {
+        return delegate.downloadArchive(ctx, branch);
+    }
+
+    @Override
+    public Mono<BranchRef> createBranch(ScmContext ctx, BranchRef baseBranch, String newBranchName) {
+        return delegate.createBranch(ctx, baseBranch, newBranchName);
+    }
+
+    @Override
+    public Mono<ScmResult> deleteBranch(ScmContext ctx, BranchRef branch) {
+        return delegate.deleteBranch(ctx, branch);
+    }
+
+    @Override
+    public Mono<ScmResult> applyPatch(ScmContext ctx, BranchRef branch, Patch patch, String commitMessage) {
+        return delegate.applyPatch(ctx, branch, patch, commitMessage);
+    }
+
+    @Override
+    public Mono<PullRequestInfo> createPullRequest(ScmContext ctx, BranchRef sourceBranch, BranchRef targetBranch, String title, String description) {
+        return delegate.createPullRequest(ctx, sourceBranch, targetBranch, title, description);
+    }
+
+    @Override
+    public Mono<MergeResult> mergePullRequest(ScmContext ctx, String pullRequestId) {
+        return delegate.mergePullRequest(ctx, pullRequestId);
+    }
+
+    @Override
+    public Mono<ScmResult> closePullRequest(ScmContext ctx, String pullRequestId) {
+        return delegate.closePullRequest(ctx, pullRequestId);
+    }
+
+    @Override
+    public Mono<PipelineResult> triggerPipeline(ScmContext ctx, PipelineSpec spec) {
+        return delegate.triggerPipeline(ctx, spec);
+    }
+
+    private static String key(ContextView context, ScmContext ctx, String... args) {
+        StringBuilder key = new StringBuilder(ctx.getRepository())
+                .append('|').append(ConditionalRequestCache.tokenIdentity(ctx.getAuthToken()));
+        for (String arg : args) {
+            key.append('|').append(arg);
+        }
+        Duration maxStaleness = ReadFreshness.maxStaleness(context, null);
+        if (maxStaleness != null) {
+            key.append("|max-staleness=").append(maxStaleness.toMillis());
+        }
+        return key.toString();
+    }
+}
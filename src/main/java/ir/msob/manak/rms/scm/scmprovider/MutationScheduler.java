@@ -0,0 +1,271 @@
+package ir.msob.manak.rms.scm.scmprovider;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+import ir.msob.manak.rms.scm.ScmProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Schedules ref-mutating operations so they do not race each other on the provider.
+ * <p>
+ * Operations on the same repository and branch run one at a time, in arrival order; an operation whose
+ * branch is not known up front (merging a pull request) is exclusive and runs alone on its repository.
+ * Different branches of one repository run in parallel up to {@code per-repository-concurrency}, and all
+ * repositories share {@code max-concurrent} slots, handed out round-robin across the repositories with
+ * queued work so a busy repository cannot starve the others. Reads do not go through here.
+ * <p>
+ * An operation runs with its caller's Reactor context even though it is subscribed from here. The time it
+ * spends queued is not bounded by the tool timeout, which never cancels writes; the queue is bounded by
+ * {@code max-queued-per-repository} instead.
+ * <p>
+ * Meters: {@code scm.mutation.queued}, {@code scm.mutation.running}, {@code scm.mutation.wait{operation}}.
+ */
+@Component
+public class MutationScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(MutationScheduler.class);
+
+    private final ScmProperties.Mutation properties;
+    private final MeterRegistry meterRegistry;
+    /**
+     * repository -> its queued and running operations; everything below is guarded by {@code this}
+     */
+    private final Map<String, RepositoryQueue> repositories = new HashMap<>();
+    /**
+     * Repositories with queued operations, in the order they get the next free slot.
+     */
+    private final Deque<RepositoryQueue> rotation = new ArrayDeque<>();
+    private int queued;
+    private int running;
+
+    public MutationScheduler(ScmProperties scmProperties, MeterRegistry meterRegistry) {
+        this.properties = scmProperties.getMutation();
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("scm.mutation.queued", this, scheduler -> scheduler.count(true))
+                .description("Mutating SCM operations waiting for a slot")
+                .register(meterRegistry);
+        Gauge.builder("scm.mutation.running", this, scheduler -> scheduler.count(false))
+                .description("Mutating SCM operations in progress")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code mutation} once no other operation holds {@code branch} of {@code repository}.
+     *
+     * @param operation label for logs and metrics (e.g. "applyPatch")
+     * @param branch    the ref the operation moves; {@code null} when unknown, which makes it exclusive
+     */
+    public <T> Mono<T> submit(String repository, String branch, String operation, Mono<T> mutation) {
+        if (!properties.isEnabled()) {
+            return mutation;
+        }
+        return Mono.create(sink -> {
+            Task<T> task = new Task<>(repository, branch, operation, mutation, sink);
+            sink.onCancel(() -> cancel(task));
+            enqueue(task);
+            dispatch();
+        });
+    }
+
+    private synchronized void enqueue(Task<?> task) {
+        RepositoryQueue queue = repositories.computeIfAbsent(task.repository, key -> new RepositoryQueue());
+        if (queue.pending.size() >= properties.getMaxQueuedPerRepository()) {
+            task.sink.error(new CommonRuntimeException("Too many pending changes to repository " + task.repository
+                    + " (" + queue.pending.size() + "), try again later"));
+            return;
+        }
+        if (queue.pending.isEmpty()) {
+            rotation.addLast(queue);
+        }
+        queue.pending.addLast(task);
+        queued++;
+    }
+
+    /**
+     * Starts as many queued operations as the limits allow, one per repository per round.
+     */
+    private void dispatch() {
+        List<Task<?>> startable = new ArrayList<>();
+        synchronized (this) {
+            int blocked = 0;
+            while (running + startable.size() < properties.getMaxConcurrent() && blocked < rotation.size()) {
+                RepositoryQueue queue = rotation.pollFirst();
+                Task<?> task = queue.next(properties.getPerRepositoryConcurrency());
+                if (task == null) {
+                    rotation.addLast(queue);
+                    blocked++;
+                    continue;
+                }
+                blocked = 0;
+                queue.start(task);
+                queued--;
+                startable.add(task);
+                if (!queue.pending.isEmpty()) {
+                    rotation.addLast(queue);
+                }
+            }
+            running += startable.size();
+        }
+        startable.forEach(this::start);
+    }
+
+    private <T> void start(Task<T> task) {
+        Duration waited = Duration.ofNanos(System.nanoTime() - task.enqueuedAt);
+        Timer.builder("scm.mutation.wait")
+                .tag("operation", task.operation)
+                .register(meterRegistry)
+                .record(waited);
+        if (waited.toMillis() > 1000) {
+            log.info("🚦 [Mutation] {} on {}@{} waited {}ms", task.operation, task.repository, task.branch, waited.toMillis());
+        }
+        Disposable subscription = task.mutation
+                .contextWrite(task.sink.contextView())
+                .doFinally(signal -> finished(task))
+                .subscribe(task.sink::success, task.sink::error, task.sink::success);
+        boolean cancelled;
+        synchronized (this) {
+            task.subscription = subscription;
+            cancelled = task.cancelled;
+        }
+        // cancelled between leaving the queue and being subscribed
+        if (cancelled) {
+            subscription.dispose();
+        }
+    }
+
+    private void finished(Task<?> task) {
+        synchronized (this) {
+            if (!task.done) {
+                task.done = true;
+                running--;
+                RepositoryQueue queue = repositories.get(task.repository);
+                queue.finish(task);
+                if (queue.isIdle()) {
+                    repositories.remove(task.repository);
+                }
+            }
+        }
+        dispatch();
+    }
+
+    private void cancel(Task<?> task) {
+        Disposable subscription;
+        synchronized (this) {
+            RepositoryQueue queue = repositories.get(task.repository);
+            if (queue != null && queue.pending.remove(task)) {
+                queued--;
+                if (queue.pending.isEmpty()) {
+                    rotation.remove(queue);
+                }
+                if (queue.isIdle()) {
+                    repositories.remove(task.repository);
+                }
+                return;
+            }
+            task.cancelled = true;
+            subscription = task.subscription;
+        }
+        // running: cancelling the subscription releases the slot through doFinally
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    private synchronized int count(boolean waiting) {
+        return waiting ? queued : running;
+    }
+
+    private static final class RepositoryQueue {
+        private final Deque<Task<?>> pending = new ArrayDeque<>();
+        private final Set<String> runningBranches = new HashSet<>();
+        private int running;
+        private boolean exclusiveRunning;
+
+        /**
+         * Oldest queued task that may start now. Tasks on a busy branch are passed over, but nothing
+         * overtakes a waiting exclusive task.
+         */
+        private Task<?> next(int perRepositoryConcurrency) {
+            if (exclusiveRunning || running >= perRepositoryConcurrency) {
+                return null;
+            }
+            for (Iterator<Task<?>> it = pending.iterator(); it.hasNext(); ) {
+                Task<?> task = it.next();
+                if (task.exclusive()) {
+                    if (running > 0) {
+                        return null;
+                    }
+                } else if (runningBranches.contains(task.branch)) {
+                    continue;
+                }
+                it.remove();
+                return task;
+            }
+            return null;
+        }
+
+        private void start(Task<?> task) {
+            running++;
+            if (task.exclusive()) {
+                exclusiveRunning = true;
+            } else {
+                runningBranches.add(task.branch);
+            }
+        }
+
+        private void finish(Task<?> task) {
+            running--;
+            if (task.exclusive()) {
+                exclusiveRunning = false;
+            } else {
+                runningBranches.remove(task.branch);
+            }
+        }
+
+        private boolean isIdle() {
+            return running == 0 && pending.isEmpty();
+        }
+    }
+
+    private static final class Task<T> {
+        private final String repository;
+        private final String branch;
+        private final String operation;
+        private final Mono<T> mutation;
+        private final MonoSink<T> sink;
+        private final long enqueuedAt = System.nanoTime();
+        private Disposable subscription;
+        private boolean cancelled;
+        private boolean done;
+
+        private Task(String repository, String branch, String operation, Mono<T> mutation, MonoSink<T> sink) {
+            this.repository = repository;
+            this.branch = branch;
+            this.operation = operation;
+            this.mutation = mutation;
+            this.sink = sink;
+        }
+
+        private boolean exclusive() {
+            return branch == null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ir.msob.manak.rms.scm.scmprovider;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.time.Duration;
+
+/**
+ * Per-call staleness bound for reads served from a mirror, carried in the Reactor {@link Context}.
+ * <p>
+ * Callers that must see the remote's current state write {@link #fresh(Context)} into the subscriber
+ * context; providers that serve reads from a local copy honour the tightest bound they find.
+ */
+public final class ReadFreshness {
+
+    private static final String MAX_STALENESS = ReadFreshness.class.getName() + ".maxStaleness";
+
+    private ReadFreshness() {
+    }
+
+    /**
+     * Forces the next read to sync with the remote first.
+     */
+    public static Context fresh(Context context) {
+        return context.put(MAX_STALENESS, Duration.ZERO);
+    }
+
+    /**
+     * Tightens the bound to {@code maxStaleness}; a stricter bound already in the context wins.
+     */
+    public static Context atMost(Context context, Duration maxStaleness) {
+        Duration current = context.getOrDefault(MAX_STALENESS, maxStaleness);
+        return context.put(MAX_STALENESS, current.compareTo(maxStaleness) < 0 ? current : maxStaleness);
+    }
+
+    public static Duration maxStaleness(ContextView context, Duration fallback) {
+        return context.getOrDefault(MAX_STALENESS, fallback);
+    }
+}
@@ -0,0 +1,131 @@
+package ir.msob.manak.rms.scm.scmprovider;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.msob.manak.core.model.jima.security.User;
+import ir.msob.manak.domain.model.rms.dto.ScmContext;
+import ir.msob.manak.domain.model.rms.repository.RepositoryDto;
+import ir.msob.manak.rms.scm.ScmProperties;
+import ir.msob.manak.rms.scm.cache.LruCache;
+import ir.msob.manak.rms.util.RepositoryUtil;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of repositories resolved for SCM calls: the {@link RepositoryDto} together with its
+ * {@link ScmContext}, provider and default branch.
+ * <p>
+ * Authorization stays with the repository service: an entry remembers which users it was loaded for, and
+ * any other user goes through the loader (and its access check) first. Entries expire after {@code ttl} and
+ * are dropped by {@link #invalidate} when a repository or its specification changes.
+ * Meters: {@code scm.cache.*{cache=repository}}.
+ */
+@Component
+public class RepositoryNearCache {
+
+    private final ScmProperties.RepositoryCache properties;
+    private final ScmProviderRegistry scmProviderRegistry;
+    private final SingleFlight singleFlight;
+    private final LruCache<String, Entry> entries;
+    /**
+     * guarded by {@code this}: bumped by every invalidation, so a load that started before one is not cached
+     */
+    private long generation;
+
+    public RepositoryNearCache(ScmProperties scmProperties, ScmProviderRegistry scmProviderRegistry,
+                               SingleFlight singleFlight, MeterRegistry meterRegistry) {
+        this.properties = scmProperties.getRepositoryCache();
+        this.scmProviderRegistry = scmProviderRegistry;
+        this.singleFlight = singleFlight;
+        this.entries = new LruCache<String, Entry>("repository", properties.getMaxEntries(), e -> 1)
+                .bindTo(meterRegistry);
+    }
+
+    /**
+     * @param loader loads the repository for {@code user}, enforcing that user's access
+     */
+    public Mono<ResolvedRepository> get(String repositoryId, User user, Supplier<Mono<RepositoryDto>> loader) {
+        if (!properties.isEnabled()) {
+            return loader.get().map(this::resolve);
+        }
+        Entry entry = entries.get(repositoryId);
+        if (entry != null && !entry.isExpired(properties.getTtl().toNanos()) && entry.users().contains(user.getUsername())) {
+            return Mono.just(entry.resolved());
+        }
+        long observed = generation();
+        // callers arriving after an invalidation do not join a load that started before it
+        return singleFlight.mono("resolveRepository", repositoryId + "|" + user.getUsername() + "|" + observed, () -> loader.get()
+                .map(repository -> {
+                    ResolvedRepository resolved = resolve(repository);
+                    store(repositoryId, user.getUsername(), resolved, observed);
+                    return resolved;
+                }));
+    }
+
+    public synchronized void invalidate(String repositoryId) {
+        generation++;
+        entries.remove(repositoryId);
+    }
+
+    /**
+     * Used when a repository specification changes; its repositories are not indexed by specification.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    private synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches a load unless an invalidation happened since it started; the result is still returned to its callers.
+     */
+    private synchronized void store(String repositoryId, String username, ResolvedRepository resolved, long observed) {
+        if (generation != observed) {
+            return;
+        }
+        Entry current = entries.get(repositoryId);
+        Entry updated = current != null && !current.isExpired(properties.getTtl().toNanos())
+                ? current.with(resolved)
+                : new Entry(resolved, System.nanoTime(), ConcurrentHashMap.newKeySet());
+        updated.users().add(username);
+        entries.put(repositoryId, updated);
+    }
+
+    private ResolvedRepository resolve(RepositoryDto repository) {
+        String defaultBranch;
+        try {
+            defaultBranch = RepositoryUtil.getBranch(repository);
+        } catch (RuntimeException e) {
+            defaultBranch = null;
+        }
+        return new ResolvedRepository(repository, RepositoryUtil.getScmContext(repository),
+                scmProviderRegistry.getProvider(repository), defaultBranch);
+    }
+
+    /**
+     * @param defaultBranch the repository's default branch, or {@code null} if it declares none
+     */
+    public record ResolvedRepository(RepositoryDto repository, ScmContext context, ScmProviderService provider,
+                                     String defaultBranch) {
+    }
+
+    private record Entry(ResolvedRepository resolved, long loadedAt, Set<String> users) {
+
+        boolean isExpired(long ttlNanos) {
+            return System.nanoTime() - loadedAt >= ttlNanos;
+        }
+
+        /**
+         * Newer data keeps the users already authorized; the expiry still counts from the first load.
+         */
+        Entry with(ResolvedRepository newer) {
+            return new Entry(newer, loadedAt, users);
+        }
+    }
+}
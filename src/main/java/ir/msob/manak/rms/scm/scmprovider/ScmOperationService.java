@@ -1,25 +1,51 @@
 package ir.msob.manak.rms.scm.scmprovider;
 
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
 import ir.msob.manak.core.model.jima.security.User;
 import ir.msob.manak.domain.model.rms.dto.*;
 import ir.msob.manak.rms.repository.RepositoryService;
+import ir.msob.manak.rms.scm.ScmProperties;
+import ir.msob.manak.rms.scm.cache.ArchiveCache;
 import ir.msob.manak.rms.util.RepositoryUtil;
+import jakarta.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.util.Strings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
 @Service
 @RequiredArgsConstructor
 public class ScmOperationService {
 
     private static final Logger log = LoggerFactory.getLogger(ScmOperationService.class);
+    private static final String ARCHIVE_FORMAT = "zip";
+    private static final int ARCHIVE_CHUNK_SIZE = 64 * 1024;
 
     private final RepositoryService repositoryService;
-    private final ScmProviderRegistry scmProviderRegistry;
+    private final RepositoryNearCache repositoryNearCache;
+    private final ArchiveCache archiveCache;
+    private final ScmProperties scmProperties;
+    private final MutationScheduler mutationScheduler;
+
+    /**
+     * Repository, context and provider for {@code user}, from the near-cache when that user already loaded it.
+     */
+    private Mono<RepositoryNearCache.ResolvedRepository> resolve(String repositoryId, User user) {
+        return repositoryNearCache.get(repositoryId, user, () -> repositoryService.getOne(repositoryId, user));
+    }
 
     /**
      * Helper to log and rethrow errors.
@@ -40,44 +66,130 @@ public class ScmOperationService {
     // ============================================================
 
     public Mono<FileContent> readFile(String repositoryId, String branch, String filePath, User user) {
-        return repositoryService.getOne(repositoryId, user)
+        return readFile(repositoryId, branch, filePath, false, user);
+    }
+
+    /**
+     * @param fresh bypass any mirror staleness bound and read the remote's current state
+     */
+    public Mono<FileContent> readFile(String repositoryId, String branch, String filePath, boolean fresh, User user) {
+        return resolve(repositoryId, user)
                 .flatMap(repo -> {
-                    ScmContext ctx = RepositoryUtil.getScmContext(repo);
-                    return scmProviderRegistry.getProvider(repo)
+                    ScmContext ctx = repo.context();
+                    return repo.provider()
                             .readFile(ctx, RepositoryUtil.getBranchRef(branch), filePath);
                 })
+                .contextWrite(context -> fresh ? ReadFreshness.fresh(context) : context)
                 .onErrorResume(e -> handleError("Error in readFile()", e));
     }
 
 
+    /**
+     * Size in bytes of a file, when the provider can tell without reading it.
+     *
+     * @param fresh bypass any mirror staleness bound and read the remote's current state
+     */
+    public Mono<Long> fileSize(String repositoryId, String branch, String filePath, boolean fresh, User user) {
+        return resolve(repositoryId, user)
+                .flatMap(repo -> repo.provider().fileSize(repo.context(), RepositoryUtil.getBranchRef(branch), filePath))
+                .contextWrite(context -> fresh ? ReadFreshness.fresh(context) : context)
+                .onErrorResume(e -> handleError("Error in fileSize()", e));
+    }
+
+    /**
+     * Streams a file's raw bytes, for files too large to return inline.
+     *
+     * @param branch branch name; the repository's default branch when blank
+     * @param fresh  bypass any mirror staleness bound and read the remote's current state
+     */
+    public Flux<DataBuffer> streamFile(String repositoryId, @Nullable String branch, String filePath, boolean fresh, User user) {
+        return resolve(repositoryId, user)
+                .flatMapMany(repo -> repo.provider().streamFile(repo.context(),
+                        RepositoryUtil.getBranchRef(Strings.isBlank(branch) ? repo.defaultBranch() : branch), filePath))
+                .contextWrite(context -> fresh ? ReadFreshness.fresh(context) : context)
+                .onErrorResume(e -> handleErrorFlux("Error in streamFile()", e));
+    }
+
+    /**
+     * Reads {@code filePaths} plus every file matching {@code glob} at one branch, streaming files as they
+     * arrive. Missing paths are skipped; more than {@code rms.scm.batch-read.max-files} files is an error.
+     *
+     * @param glob  optional glob over repository paths, e.g. {@code src/**.java}
+     * @param fresh bypass any mirror staleness bound and read the remote's current state
+     */
+    public Flux<FileContent> readFiles(String repositoryId, String branch, List<String> filePaths, @Nullable String glob,
+                                       boolean fresh, User user) {
+        if (filePaths.isEmpty() && Strings.isBlank(glob)) {
+            return Flux.error(new CommonRuntimeException("Either file paths or a glob is required"));
+        }
+        int maxFiles = scmProperties.getBatchRead().getMaxFiles();
+        return resolve(repositoryId, user)
+                .flatMapMany(repo -> {
+                    ScmContext ctx = repo.context();
+                    BranchRef branchRef = RepositoryUtil.getBranchRef(branch);
+                    Mono<List<String>> paths = Strings.isBlank(glob)
+                            ? Mono.just(filePaths)
+                            : repo.provider().listFiles(ctx, branchRef)
+                            .filter(globMatcher(glob))
+                            .collectList()
+                            .map(matched -> Stream.concat(filePaths.stream(), matched.stream()).distinct().toList());
+                    return paths.flatMapMany(selected -> selected.size() > maxFiles
+                            ? Flux.error(new CommonRuntimeException(selected.size() + " files selected, at most " + maxFiles + " can be read per call"))
+                            : repo.provider().readFiles(ctx, branchRef, selected));
+                })
+                .contextWrite(context -> fresh ? ReadFreshness.fresh(context) : context)
+                .onErrorResume(e -> handleErrorFlux("Error in readFiles()", e));
+    }
+
+    private static Predicate<String> globMatcher(String glob) {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        return path -> matcher.matches(Path.of(path));
+    }
+
+
     public Flux<DataBuffer> downloadArchive(String repositoryId, String branch, User user) {
-        return repositoryService.getOne(repositoryId, user)
+        return downloadArchive(repositoryId, branch, false, user);
+    }
+
+    /**
+     * Streams the branch head's archive from {@link ArchiveCache}, so concurrent and repeated downloads of one
+     * commit hit the provider once.
+     *
+     * @param fresh bypass any mirror staleness bound and archive the remote's current state
+     */
+    public Flux<DataBuffer> downloadArchive(String repositoryId, String branch, boolean fresh, User user) {
+        return resolve(repositoryId, user)
                 .flatMapMany(repo -> {
-                    ScmContext ctx = RepositoryUtil.getScmContext(repo);
-                    return scmProviderRegistry.getProvider(repo)
-                            .downloadArchive(ctx, RepositoryUtil.getBranchRef(branch));
+                    ScmContext ctx = repo.context();
+                    ScmProviderService provider = repo.provider();
+                    return provider.resolveCommitSha(ctx, RepositoryUtil.getBranchRef(branch))
+                            .flatMap(sha -> archiveCache.get(ctx.getRepository(), sha, ARCHIVE_FORMAT,
+                                    () -> provider.downloadArchive(ctx, RepositoryUtil.getBranchRef(sha))))
+                            .flatMapMany(archive -> DataBufferUtils.read(archive.file(), DefaultDataBufferFactory.sharedInstance, ARCHIVE_CHUNK_SIZE));
                 })
+                .contextWrite(context -> fresh ? ReadFreshness.fresh(context) : context)
                 .onErrorResume(e -> handleErrorFlux("Error in downloadArchive()", e));
     }
 
 
     public Mono<BranchRef> createBranch(String repositoryId, String baseBranch, String newBranchName, User user) {
-        return repositoryService.getOne(repositoryId, user)
+        // access is checked before queueing, so unauthorized calls never hold a slot or a branch
+        return resolve(repositoryId, user)
                 .flatMap(repo -> {
-                    ScmContext ctx = RepositoryUtil.getScmContext(repo);
-                    return scmProviderRegistry.getProvider(repo)
-                            .createBranch(ctx, RepositoryUtil.getBranchRef(baseBranch), newBranchName);
+                    ScmContext ctx = repo.context();
+                    return mutationScheduler.submit(repositoryId, newBranchName, "createBranch", repo.provider()
+                            .createBranch(ctx, RepositoryUtil.getBranchRef(baseBranch), newBranchName));
                 })
                 .onErrorResume(e -> handleError("Error in createBranch()", e));
     }
 
 
     public Mono<ScmResult> deleteBranch(String repositoryId, String branch, User user) {
-        return repositoryService.getOne(repositoryId, user)
+        return resolve(repositoryId, user)
                 .flatMap(repo -> {
-                    ScmContext ctx = RepositoryUtil.getScmContext(repo);
-                    return scmProviderRegistry.getProvider(repo)
-                            .deleteBranch(ctx, RepositoryUtil.getBranchRef(branch));
+                    ScmContext ctx = repo.context();
+                    return mutationScheduler.submit(repositoryId, branch, "deleteBranch", repo.provider()
+                            .deleteBranch(ctx, RepositoryUtil.getBranchRef(branch)));
                 })
                 .onErrorResume(e -> handleError("Error in deleteBranch()", e));
     }
@@ -90,11 +202,11 @@ public class ScmOperationService {
             String commitMessage,
             User user
     ) {
-        return repositoryService.getOne(repositoryId, user)
+        return resolve(repositoryId, user)
                 .flatMap(repo -> {
-                    ScmContext ctx = RepositoryUtil.getScmContext(repo);
-                    return scmProviderRegistry.getProvider(repo)
-                            .applyPatch(ctx, RepositoryUtil.getBranchRef(branch), patch, commitMessage);
+                    ScmContext ctx = repo.context();
+                    return mutationScheduler.submit(repositoryId, branch, "applyPatch", repo.provider()
+                            .applyPatch(ctx, RepositoryUtil.getBranchRef(branch), patch, commitMessage));
                 })
                 .onErrorResume(e -> handleError("Error in applyPatch()", e));
     }
@@ -108,10 +220,10 @@ public class ScmOperationService {
             String description,
             User user
     ) {
-        return repositoryService.getOne(repositoryId, user)
+        return resolve(repositoryId, user)
                 .flatMap(repo -> {
-                    ScmContext ctx = RepositoryUtil.getScmContext(repo);
-                    return scmProviderRegistry.getProvider(repo)
+                    ScmContext ctx = repo.context();
+                    return repo.provider()
                             .createPullRequest(
                                     ctx,
                                     RepositoryUtil.getBranchRef(sourceBranch),
@@ -125,21 +237,22 @@ public class ScmOperationService {
 
 
     public Mono<MergeResult> mergePullRequest(String repositoryId, String pullRequestId, User user) {
-        return repositoryService.getOne(repositoryId, user)
+        // the target branch is not known here, so the merge runs alone on the repository
+        return resolve(repositoryId, user)
                 .flatMap(repo -> {
-                    ScmContext ctx = RepositoryUtil.getScmContext(repo);
-                    return scmProviderRegistry.getProvider(repo)
-                            .mergePullRequest(ctx, pullRequestId);
+                    ScmContext ctx = repo.context();
+                    return mutationScheduler.submit(repositoryId, null, "mergePullRequest", repo.provider()
+                            .mergePullRequest(ctx, pullRequestId));
                 })
                 .onErrorResume(e -> handleError("Error in mergePullRequest()", e));
     }
 
 
     public Mono<ScmResult> closePullRequest(String repositoryId, String pullRequestId, User user) {
-        return repositoryService.getOne(repositoryId, user)
+        return resolve(repositoryId, user)
                 .flatMap(repo -> {
-                    ScmContext ctx = RepositoryUtil.getScmContext(repo);
-                    return scmProviderRegistry.getProvider(repo)
+                    ScmContext ctx = repo.context();
+                    return repo.provider()
                             .closePullRequest(ctx, pullRequestId);
                 })
                 .onErrorResume(e -> handleError("Error in closePullRequest()", e));
@@ -147,10 +260,10 @@ public class ScmOperationService {
 
 
     public Mono<PipelineResult> triggerPipeline(String repositoryId, PipelineSpec spec, User user) {
-        return repositoryService.getOne(repositoryId, user)
+        return resolve(repositoryId, user)
                 .flatMap(repo -> {
-                    ScmContext ctx = RepositoryUtil.getScmContext(repo);
-                    return scmProviderRegistry.getProvider(repo)
+                    ScmContext ctx = repo.context();
+                    return repo.provider()
                             .triggerPipeline(ctx, spec);
                 })
                 .onErrorResume(e -> handleError("Error in triggerPipeline()", e));
@@ -3,30 +3,107 @@ package ir.msob.manak.rms.scm.scmprovider;
 import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
 import ir.msob.manak.domain.model.rms.repository.RepositoryDto;
 import ir.msob.manak.domain.model.rms.repositoryspecification.RepositorySpecification;
-import lombok.RequiredArgsConstructor;
+import ir.msob.manak.rms.scm.ScmProperties;
+import ir.msob.manak.rms.scm.scmprovider.local.GitMirrorManager;
+import ir.msob.manak.rms.scm.scmprovider.local.LocalProviderService;
+import ir.msob.manak.rms.scm.scmprovider.local.MirroredProviderService;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Dispatch table from {@code RepositorySpecification.type} to provider, built once at startup from the
+ * {@link ScmProviderType} annotations of the provider beans.
+ */
 @Service
-@RequiredArgsConstructor
 public class ScmProviderRegistry {
 
-    private final Map<String, ScmProviderService> scmProviderServiceMap;
+    private final ScmProperties scmProperties;
+    private final GitMirrorManager gitMirrorManager;
+    private final SingleFlight singleFlight;
+    /**
+     * type -> provider as registered
+     */
+    private final Map<String, ScmProviderService> providers;
+    /**
+     * type -> provider behind {@link CoalescingProviderService}, handed out to callers
+     */
+    private final Map<String, ScmProviderService> coalescedProviders;
+    /**
+     * type|specification name -> hybrid provider; built on first use, since specifications live in the database
+     */
+    private final Map<String, ScmProviderService> mirroredProviders = new ConcurrentHashMap<>();
 
+    public ScmProviderRegistry(List<ScmProviderService> scmProviderServices,
+                               ScmProperties scmProperties,
+                               GitMirrorManager gitMirrorManager,
+                               SingleFlight singleFlight) {
+        this.scmProperties = scmProperties;
+        this.gitMirrorManager = gitMirrorManager;
+        this.singleFlight = singleFlight;
+
+        Map<String, ScmProviderService> byType = new HashMap<>();
+        Map<String, ScmProviderService> coalesced = new HashMap<>();
+        for (ScmProviderService provider : scmProviderServices) {
+            ScmProviderType type = AnnotatedElementUtils.findMergedAnnotation(AopUtils.getTargetClass(provider), ScmProviderType.class);
+            if (type == null) {
+                throw new IllegalStateException("ScmProviderService " + AopUtils.getTargetClass(provider).getName()
+                        + " is not annotated with @ScmProviderType");
+            }
+            ScmProviderService previous = byType.putIfAbsent(type.value(), provider);
+            if (previous != null) {
+                throw new IllegalStateException("Duplicate ScmProviderService for type '" + type.value() + "': "
+                        + AopUtils.getTargetClass(previous).getName() + " and " + AopUtils.getTargetClass(provider).getName());
+            }
+            coalesced.put(type.value(), new CoalescingProviderService(provider, singleFlight));
+        }
+        this.providers = Map.copyOf(byType);
+        this.coalescedProviders = Map.copyOf(coalesced);
+    }
+
+    /**
+     * Providers are handed out behind {@link CoalescingProviderService}, so concurrent identical reads share one call.
+     */
     public ScmProviderService getProvider(String type) {
-        if ("github".equals(type)) {
-            return scmProviderServiceMap.get("githubProviderService");
+        ScmProviderService provider = type == null ? null : coalescedProviders.get(type);
+        if (provider == null) {
+            throw new CommonRuntimeException("Provider not found for type '" + type + "', known types: " + providers.keySet());
         }
-        throw new CommonRuntimeException("Provider not found");
+        return provider;
     }
 
     public ScmProviderService getProvider(RepositoryDto repositoryDto) {
         return getProvider(repositoryDto.getSpecification());
     }
 
+    /**
+     * Specifications listed under {@code rms.scm.mirror.specifications} get a hybrid provider that reads
+     * from a local mirror and writes to the provider of their type.
+     */
     public ScmProviderService getProvider(RepositorySpecification repositorySpecification) {
-        return getProvider(repositorySpecification.getType());
+        ScmProperties.MirrorSpecification mirror = scmProperties.getMirror().specificationFor(repositorySpecification.getName());
+        if (mirror == null || LocalProviderService.TYPE.equals(repositorySpecification.getType())) {
+            return getProvider(repositorySpecification.getType());
+        }
+        return mirroredProviders.computeIfAbsent(repositorySpecification.getType() + "|" + repositorySpecification.getName(),
+                key -> new CoalescingProviderService(new MirroredProviderService(
+                        lookup(repositorySpecification.getType()),
+                        lookup(LocalProviderService.TYPE),
+                        gitMirrorManager,
+                        mirror), singleFlight));
+    }
+
+    private ScmProviderService lookup(String type) {
+        ScmProviderService provider = providers.get(type);
+        if (provider == null) {
+            throw new CommonRuntimeException("Provider not found for type '" + type + "', known types: " + providers.keySet());
+        }
+        return provider;
     }
 
-}
\ No newline at end of file
+}
@@ -5,6 +5,8 @@ import org.springframework.core.io.buffer.DataBuffer;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 /**
  * High-level, vendor-agnostic Source Control Management service.
  * Designed for GitHub / GitLab / Bitbucket / Azure DevOps / Local.
@@ -20,6 +22,16 @@ public interface ScmProviderService {
      */
     Mono<Boolean> validateAccess(ScmContext context);
 
+    /**
+     * Resolves the commit SHA a branch currently points to.
+     */
+    Mono<String> resolveCommitSha(ScmContext ctx, BranchRef branch);
+
+    /**
+     * Lists the repository's branches with their head commit SHAs.
+     */
+    Flux<BranchRef> listBranches(ScmContext ctx);
+
 
     // =====================
     // File Operations
@@ -30,6 +42,28 @@ public interface ScmProviderService {
      */
     Mono<FileContent> readFile(ScmContext ctx, BranchRef branch, String filePath);
 
+    /**
+     * Streams a file's raw bytes without holding them in memory, for files too large for {@link #readFile}.
+     */
+    Flux<DataBuffer> streamFile(ScmContext ctx, BranchRef branch, String filePath);
+
+    /**
+     * Size in bytes of a file at a branch, looked up without reading the file; empty when the provider
+     * cannot tell that cheaply (or the file does not exist).
+     */
+    Mono<Long> fileSize(ScmContext ctx, BranchRef branch, String filePath);
+
+    /**
+     * Reads several files at one commit of a branch. Files are emitted as they are read, in no particular
+     * order; paths that do not exist are skipped.
+     */
+    Flux<FileContent> readFiles(ScmContext ctx, BranchRef branch, List<String> filePaths);
+
+    /**
+     * Lists the paths of all files at a branch.
+     */
+    Flux<String> listFiles(ScmContext ctx, BranchRef branch);
+
     /**
      * Downloads repository snapshot (zip, tar, etc.).
      */
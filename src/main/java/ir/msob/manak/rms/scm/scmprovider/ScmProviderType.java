@@ -0,0 +1,24 @@
+package ir.msob.manak.rms.scm.scmprovider;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Registers an {@link ScmProviderService} bean under a {@code RepositorySpecification.type} value.
+ * <p>
+ * {@link ScmProviderRegistry} builds its dispatch table from these at startup, so a new provider only
+ * needs this annotation on its bean class.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ScmProviderType {
+
+    /**
+     * The specification type served by the provider, e.g. {@code github}.
+     */
+    String value();
+}
@@ -0,0 +1,52 @@
+package ir.msob.manak.rms.scm.scmprovider;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls: the first caller for a key starts the upstream call, callers that
+ * arrive while it is in flight share its result. The key is dropped once the call terminates, so nothing
+ * is cached beyond the flight. Archives coalesce in {@code ArchiveCache}, where joiners replay the file on disk.
+ * <p>
+ * Meters: {@code scm.singleflight.calls{operation,result=originated|coalesced}}.
+ */
+@Component
+public class SingleFlight {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Object> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter[]> counters = new ConcurrentHashMap<>();
+
+    public SingleFlight(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Shares one {@code call} among concurrent subscribers with the same key; late joiners get the cached signal.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> mono(String operation, String key, Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            String flightKey = operation + "|" + key;
+            Mono<T>[] created = new Mono[1];
+            Mono<T> shared = (Mono<T>) inFlight.computeIfAbsent(flightKey, k -> created[0] = call.get()
+                    .doFinally(signal -> inFlight.remove(k, created[0]))
+                    .cache());
+            record(operation, shared == created[0]);
+            return shared;
+        });
+    }
+
+    private void record(String operation, boolean originated) {
+        Counter[] pair = counters.computeIfAbsent(operation, op -> new Counter[]{
+                Counter.builder("scm.singleflight.calls").tag("operation", op).tag("result", "originated").register(meterRegistry),
+                Counter.builder("scm.singleflight.calls").tag("operation", op).tag("result", "coalesced").register(meterRegistry)});
+        pair[originated ? 0 : 1].increment();
+    }
+}
@@ -0,0 +1,274 @@
+package ir.msob.manak.rms.scm.scmprovider.github;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+import ir.msob.manak.rms.scm.ScmProperties;
+import ir.msob.manak.rms.scm.http.ScmWebClientFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Installation tokens for the GitHub Apps configured under {@code rms.scm.github.apps}.
+ * <p>
+ * A token entry {@code app:<name>/<installation id>} names a configured app and one of the installations
+ * listed for it; any other entry is refused. It is exchanged for an installation token: an RS256 JWT
+ * signed with the app's private key is posted to {@code /app/installations/{id}/access_tokens}. Tokens are
+ * kept in memory and a background sweep mints them again {@code refresh-ahead} before they expire, so
+ * requests only wait for a mint the first time an installation is used (or after {@code idle-after}).
+ * Concurrent mints for one installation share a single call.
+ */
+@Component
+public class GithubAppTokenProvider {
+
+    public static final String PREFIX = "app:";
+
+    private static final Logger log = LoggerFactory.getLogger(GithubAppTokenProvider.class);
+    private static final Base64.Encoder JWT_BASE64 = Base64.getUrlEncoder().withoutPadding();
+    /**
+     * GitHub rejects JWTs living longer than 10 minutes; {@code iat} is backdated for clock skew.
+     */
+    private static final Duration JWT_TTL = Duration.ofMinutes(9);
+    private static final Duration CLOCK_SKEW = Duration.ofSeconds(60);
+    /**
+     * A cached token closer than this to expiry is not handed out.
+     */
+    private static final Duration MIN_VALIDITY = Duration.ofMinutes(1);
+
+    private final ScmProperties.Github properties;
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, PrivateKey> privateKeys = new ConcurrentHashMap<>();
+    private final Map<String, Installation> installations = new ConcurrentHashMap<>();
+    private Disposable sweeper;
+
+    public GithubAppTokenProvider(ScmProperties scmProperties, ScmWebClientFactory webClientFactory) {
+        this.properties = scmProperties.getGithub();
+        this.webClient = webClientFactory.create(properties.getApiUrl());
+    }
+
+    public static boolean isAppToken(String entry) {
+        return entry != null && entry.startsWith(PREFIX);
+    }
+
+    @PostConstruct
+    public void start() {
+        sweeper = Flux.interval(properties.getAppToken().getSweepInterval())
+                .subscribe(tick -> sweep());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+    }
+
+    /**
+     * Installation token for {@code entry}; completes immediately when a valid token is cached.
+     */
+    public Mono<String> token(String entry) {
+        try {
+            target(entry);
+        } catch (CommonRuntimeException e) {
+            return Mono.error(e);
+        }
+        Installation installation = installations.computeIfAbsent(entry, Installation::new);
+        installation.lastUsed = System.currentTimeMillis();
+        IssuedToken current = installation.current;
+        if (current != null && current.expiresAt().isAfter(Instant.now().plus(MIN_VALIDITY))) {
+            return Mono.just(current.token());
+        }
+        return installation.mint().map(IssuedToken::token);
+    }
+
+    /**
+     * Drops the cached token of {@code entry}, e.g. after GitHub answered 401 with it.
+     */
+    public void invalidate(String entry) {
+        Installation installation = installations.get(entry);
+        if (installation != null) {
+            installation.current = null;
+        }
+    }
+
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        Instant refreshBefore = Instant.ofEpochMilli(now).plus(properties.getAppToken().getRefreshAhead());
+        installations.values().removeIf(installation -> now - installation.lastUsed > properties.getAppToken().getIdleAfter().toMillis());
+        installations.values().forEach(installation -> {
+            IssuedToken current = installation.current;
+            if (current == null || current.expiresAt().isBefore(refreshBefore)) {
+                installation.mint().subscribe(
+                        token -> log.debug("🔑 [GitHub] refreshed installation token {}", installation.entry),
+                        e -> log.warn("⚠️ [GitHub] failed to refresh installation token {}: {}", installation.entry, e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Checks {@code entry} against the configured apps and their allowed installations.
+     */
+    private Target target(String entry) {
+        int slash = entry.indexOf('/');
+        if (slash < 0) {
+            throw new CommonRuntimeException("Invalid GitHub App token entry '" + entry + "', expected app:<name>/<installation id>");
+        }
+        String name = entry.substring(PREFIX.length(), slash);
+        String installationId = entry.substring(slash + 1);
+        ScmProperties.GithubApp app = properties.getApps().get(name);
+        if (app == null) {
+            throw new CommonRuntimeException("GitHub App '" + name + "' is not configured, known apps: " + properties.getApps().keySet());
+        }
+        if (!app.getInstallations().contains(installationId)) {
+            throw new CommonRuntimeException("Installation " + installationId + " is not allowed for GitHub App '" + name + "'");
+        }
+        return new Target(name, app, installationId);
+    }
+
+    private Mono<IssuedToken> exchange(String entry) {
+        Target target;
+        try {
+            target = target(entry);
+        } catch (CommonRuntimeException e) {
+            return Mono.error(e);
+        }
+        String name = target.name();
+        ScmProperties.GithubApp app = target.app();
+        String installationId = target.installationId();
+        return Mono.fromCallable(() -> jwt(name, app))
+                .flatMap(jwt -> webClient.post()
+                        .uri("/app/installations/{id}/access_tokens", installationId)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwt)
+                        .header(HttpHeaders.ACCEPT, "application/vnd.github+json")
+                        .retrieve()
+                        .bodyToMono(String.class))
+                .map(body -> {
+                    try {
+                        JsonNode json = objectMapper.readTree(body);
+                        return new IssuedToken(json.path("token").asText(), Instant.parse(json.path("expires_at").asText()));
+                    } catch (IOException | RuntimeException e) {
+                        throw new CommonRuntimeException("Unexpected installation token response for " + entry + ": " + e.getMessage());
+                    }
+                })
+                .doOnNext(token -> log.info("🔑 [GitHub] minted installation token app={} installation={} expiresAt={}",
+                        name, installationId, token.expiresAt()))
+                .onErrorMap(e -> !(e instanceof CommonRuntimeException),
+                        e -> new CommonRuntimeException("Installation token exchange failed for " + entry + ": " + e.getMessage()));
+    }
+
+    private String jwt(String name, ScmProperties.GithubApp app) throws GeneralSecurityException {
+        Instant now = Instant.now();
+        String header = JWT_BASE64.encodeToString("{\"alg\":\"RS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+        String payload = JWT_BASE64.encodeToString(("{\"iat\":" + now.minus(CLOCK_SKEW).getEpochSecond()
+                + ",\"exp\":" + now.plus(JWT_TTL).getEpochSecond()
+                + ",\"iss\":\"" + app.getAppId() + "\"}").getBytes(StandardCharsets.UTF_8));
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(privateKeys.computeIfAbsent(name, key -> loadPrivateKey(key, app)));
+        signature.update((header + "." + payload).getBytes(StandardCharsets.US_ASCII));
+        return header + "." + payload + "." + JWT_BASE64.encodeToString(signature.sign());
+    }
+
+    private static PrivateKey loadPrivateKey(String name, ScmProperties.GithubApp app) {
+        try {
+            String pem = app.getPrivateKey() != null
+                    ? app.getPrivateKey()
+                    : Files.readString(Path.of(app.getPrivateKeyPath()), StandardCharsets.US_ASCII);
+            boolean pkcs1 = pem.contains("BEGIN RSA PRIVATE KEY");
+            byte[] der = Base64.getMimeDecoder().decode(pem.replaceAll("-----[A-Z ]+-----", ""));
+            return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(pkcs1 ? pkcs1ToPkcs8(der) : der));
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            throw new CommonRuntimeException("Cannot load private key of GitHub App '" + name + "': " + e.getMessage());
+        }
+    }
+
+    /**
+     * GitHub issues PKCS#1 keys, which the JDK only reads wrapped as PKCS#8:
+     * {@code SEQUENCE { INTEGER 0, SEQUENCE { rsaEncryption, NULL }, OCTET STRING pkcs1 }}.
+     */
+    private static byte[] pkcs1ToPkcs8(byte[] pkcs1) {
+        byte[] version = {0x02, 0x01, 0x00};
+        byte[] algorithm = {0x30, 0x0d, 0x06, 0x09, 0x2a, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xf7, 0x0d, 0x01, 0x01, 0x01, 0x05, 0x00};
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(version);
+        body.writeBytes(algorithm);
+        body.write(0x04);
+        writeLength(body, pkcs1.length);
+        body.writeBytes(pkcs1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0x30);
+        writeLength(out, body.size());
+        out.writeBytes(body.toByteArray());
+        return out.toByteArray();
+    }
+
+    private static void writeLength(ByteArrayOutputStream out, int length) {
+        if (length < 0x80) {
+            out.write(length);
+            return;
+        }
+        int bytes = (32 - Integer.numberOfLeadingZeros(length) + 7) / 8;
+        out.write(0x80 | bytes);
+        for (int i = bytes - 1; i >= 0; i--) {
+            out.write(length >>> (8 * i));
+        }
+    }
+
+    private record IssuedToken(String token, Instant expiresAt) {
+    }
+
+    private record Target(String name, ScmProperties.GithubApp app, String installationId) {
+    }
+
+    private final class Installation {
+        private final String entry;
+        private volatile IssuedToken current;
+        private volatile long lastUsed = System.currentTimeMillis();
+        private Mono<IssuedToken> minting;
+
+        private Installation(String entry) {
+            this.entry = entry;
+        }
+
+        /**
+         * The mint in progress, or a new one.
+         */
+        synchronized Mono<IssuedToken> mint() {
+            if (minting == null) {
+                minting = exchange(entry)
+                        .doOnNext(token -> current = token)
+                        .doFinally(signal -> {
+                            synchronized (this) {
+                                minting = null;
+                            }
+                        })
+                        .cache();
+            }
+            return minting;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package ir.msob.manak.rms.scm.scmprovider.github;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+import ir.msob.manak.domain.model.rms.dto.ScmContext;
+import ir.msob.manak.rms.scm.ScmProperties;
+import ir.msob.manak.rms.scm.http.ConditionalRequestCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges GitHub reads against one repository into a single GraphQL v4 query.
+ * <p>
+ * Each read is one aliased field under {@code repository(owner, name)}. Reads for the same repository and
+ * credential that arrive within {@code batch-window} (or until {@code max-batch-size} is reached) are sent
+ * together; every caller gets its own field back, or an empty result when GitHub returned {@code null}
+ * for it. Arguments travel as query variables, so no user input is spliced into the query text.
+ * <p>
+ * Meters: {@code scm.github.graphql.batch.size}.
+ */
+class GithubGraphqlBatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(GithubGraphqlBatcher.class);
+    private static final String BLOB_FIELDS = "{ ... on Blob { text isBinary isTruncated } }";
+
+    private final WebClient webClient;
+    private final String url;
+    private final ScmProperties.Graphql properties;
+    private final ObjectMapper objectMapper;
+    private final DistributionSummary batchSize;
+    /**
+     * repository|credential -> reads waiting for the window to close; guarded by itself
+     */
+    private final Map<String, Batch> pending = new HashMap<>();
+
+    GithubGraphqlBatcher(WebClient webClient, String url, ScmProperties.Graphql properties, ObjectMapper objectMapper,
+                         MeterRegistry meterRegistry) {
+        this.webClient = webClient;
+        this.url = url;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.batchSize = DistributionSummary.builder("scm.github.graphql.batch.size")
+                .description("Reads merged into one GraphQL query")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Text of the file at {@code ref:path}; empty when it does not exist, and {@link Blob#text()} null when
+     * GitHub does not serve it as text (binary or too large).
+     */
+    Mono<Blob> fileAt(ScmContext ctx, String ref, String path) {
+        return read(ctx, "object(expression: %s) " + BLOB_FIELDS, "String!", ref + ":" + path)
+                .map(GithubGraphqlBatcher::blob);
+    }
+
+    /**
+     * Text of the blob {@code oid}; empty when it does not exist.
+     */
+    Mono<Blob> blob(ScmContext ctx, String oid) {
+        return read(ctx, "object(oid: %s) " + BLOB_FIELDS, "GitObjectID!", oid)
+                .map(GithubGraphqlBatcher::blob);
+    }
+
+    private static Blob blob(JsonNode node) {
+        boolean text = !node.path("isBinary").asBoolean(false) && !node.path("isTruncated").asBoolean(false)
+                && node.hasNonNull("text");
+        return new Blob(text ? node.get("text").asText() : null);
+    }
+
+    /**
+     * @param field    field under {@code repository}, with {@code %s} where the variable goes
+     * @param type     GraphQL type of the variable
+     * @param argument value of the variable
+     */
+    private Mono<JsonNode> read(ScmContext ctx, String field, String type, String argument) {
+        return Mono.defer(() -> {
+            Sinks.One<JsonNode> sink = Sinks.one();
+            String key = ctx.getRepository() + "|" + ConditionalRequestCache.tokenIdentity(ctx.getAuthToken());
+            Batch full = null;
+            synchronized (pending) {
+                Batch batch = pending.get(key);
+                if (batch == null) {
+                    batch = new Batch(ctx);
+                    pending.put(key, batch);
+                    Batch scheduled = batch;
+                    Mono.delay(properties.getBatchWindow()).subscribe(tick -> {
+                        synchronized (pending) {
+                            if (!pending.remove(key, scheduled)) {
+                                return;
+                            }
+                        }
+                        send(scheduled);
+                    });
+                }
+                batch.reads.add(new Read(field, type, argument, sink));
+                if (batch.reads.size() >= properties.getMaxBatchSize()) {
+                    pending.remove(key);
+                    full = batch;
+                }
+            }
+            if (full != null) {
+                send(full);
+            }
+            return sink.asMono();
+        });
+    }
+
+    private void send(Batch batch) {
+        List<Read> reads = batch.reads;
+        String repository = batch.ctx.getRepository();
+        int slash = repository.indexOf('/');
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("owner", repository.substring(0, Math.max(slash, 0)));
+        variables.put("name", repository.substring(slash + 1));
+        StringBuilder declarations = new StringBuilder("$owner: String!, $name: String!");
+        StringBuilder fields = new StringBuilder();
+        for (int i = 0; i < reads.size(); i++) {
+            Read read = reads.get(i);
+            declarations.append(", $v").append(i).append(": ").append(read.type());
+            fields.append(" r").append(i).append(": ").append(String.format(read.field(), "$v" + i));
+            variables.put("v" + i, read.argument());
+        }
+        String query = "query(" + declarations + ") { repository(owner: $owner, name: $name) {" + fields + " } }";
+        batchSize.record(reads.size());
+        log.debug("🧩 [GitHub] graphql batch repo={}, reads={}", repository, reads.size());
+
+        webClient.post()
+                .uri(url)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + batch.ctx.getAuthToken())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("query", query, "variables", variables))
+                .retrieve()
+                .bodyToMono(String.class)
+                .map(body -> {
+                    try {
+                        return objectMapper.readTree(body);
+                    } catch (Exception e) {
+                        throw new CommonRuntimeException("Unreadable GraphQL response: " + e.getMessage());
+                    }
+                })
+                .subscribe(response -> {
+                    JsonNode data = response.path("data").path("repository");
+                    if (data.isMissingNode() || data.isNull()) {
+                        CommonRuntimeException error = new CommonRuntimeException("GraphQL query failed for " + repository + ": "
+                                + response.path("errors").toString());
+                        reads.forEach(read -> read.sink().tryEmitError(error));
+                        return;
+                    }
+                    for (int i = 0; i < reads.size(); i++) {
+                        JsonNode node = data.get("r" + i);
+                        if (node == null || node.isNull()) {
+                            reads.get(i).sink().tryEmitEmpty();
+                        } else {
+                            reads.get(i).sink().tryEmitValue(node);
+                        }
+                    }
+                }, e -> {
+                    log.warn("❌ [GitHub] graphql batch failed repo={}, reads={}: {}", repository, reads.size(), e.getMessage());
+                    reads.forEach(read -> read.sink().tryEmitError(e));
+                });
+    }
+
+    /**
+     * @param text UTF-8 content, or {@code null} when the blob has to be fetched as raw bytes
+     */
+    record Blob(String text) {
+    }
+
+    private record Read(String field, String type, String argument, Sinks.One<JsonNode> sink) {
+    }
+
+    private static final class Batch {
+        private final ScmContext ctx;
+        private final List<Read> reads = new ArrayList<>();
+
+        private Batch(ScmContext ctx) {
+            this.ctx = ctx;
+        }
+    }
+}
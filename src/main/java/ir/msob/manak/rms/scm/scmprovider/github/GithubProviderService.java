@@ -2,64 +2,108 @@ package ir.msob.manak.rms.scm.scmprovider.github;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import ir.msob.manak.domain.model.rms.dto.*;
+import ir.msob.manak.rms.scm.ScmProperties;
+import ir.msob.manak.rms.scm.cache.BlobContentCache;
+import ir.msob.manak.rms.scm.cache.CommitRefCache;
+import ir.msob.manak.rms.scm.cache.LruCache;
+import ir.msob.manak.rms.scm.http.ConditionalRequestCache;
+import ir.msob.manak.rms.scm.http.ScmWebClientFactory;
+import ir.msob.manak.rms.scm.patch.Base64Content;
+import ir.msob.manak.rms.scm.patch.FileDiff;
+import ir.msob.manak.rms.scm.patch.UnifiedDiffApplier;
+import ir.msob.manak.rms.scm.patch.UnifiedDiffParser;
+import ir.msob.manak.rms.scm.scmprovider.BoundedParallelStage;
 import ir.msob.manak.rms.scm.scmprovider.ScmProviderService;
+import ir.msob.manak.rms.scm.scmprovider.ScmProviderType;
+import ir.msob.manak.rms.scm.scmprovider.SingleFlight;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.netty.http.client.HttpClient;
+import reactor.util.function.Tuples;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 /**
  * Full single-file implementation of ScmProviderService for GitHub (REST API v3).
  * <p>
  * Notes:
- * - This uses the "Contents" API to read/create/update files.
- * - applyPatch expects Patch.diff to be a JSON array like:
+ * - This uses the "Contents" API to read files.
+ * - applyPatch writes through the Git Data API (one commit per patch) unless
+ * {@code rms.scm.github.apply-patch-mode=contents} selects the per-file Contents API path.
+ * - applyPatch expects Patch.diff to be a unified diff ({@code git diff} output) or a JSON array like:
  * [
  * { "path": "src/Main.java", "content": "public class Main { ... }" },
  * { "path": "README.md", "content": "# Title\n..." }
  * ]
- * <p>
- * If you prefer another format for patch.diff, replace the parsing logic in applyPatch.
  */
 @Service
+@ScmProviderType(GithubProviderService.TYPE)
 @Slf4j
 public class GithubProviderService implements ScmProviderService {
 
+    public static final String TYPE = "github";
+    private static final String DEFAULT_FILE_MODE = "100644";
+    private static final String DEFAULT_COMMIT_MESSAGE = "Apply patch";
+    private static final int BRANCH_PAGE_SIZE = 100;
+    private static final MediaType GITHUB_RAW = MediaType.parseMediaType("application/vnd.github.raw+json");
+
     private final WebClient webClient;
     private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ScmProperties scmProperties;
+    private final BoundedParallelStage parallelStage;
+    private final CommitRefCache commitRefCache;
+    private final BlobContentCache blobContentCache;
+    /**
+     * {@code repository@commitSha -> (path -> blob)}; commit trees never change.
+     */
+    private final LruCache<String, Map<String, TreeBlob>> treeIndex;
+    private final GithubGraphqlBatcher graphql;
+    private final SingleFlight singleFlight;
+
+    public GithubProviderService(ScmProperties scmProperties,
+                                 BoundedParallelStage parallelStage,
+                                 ScmWebClientFactory webClientFactory,
+                                 CommitRefCache commitRefCache,
+                                 BlobContentCache blobContentCache,
+                                 GithubTokenPool tokenPool,
+                                 GithubRateLimiter rateLimiter,
+                                 SingleFlight singleFlight,
+                                 MeterRegistry meterRegistry) {
+        this.scmProperties = scmProperties;
+        this.singleFlight = singleFlight;
+        this.parallelStage = parallelStage;
+        this.commitRefCache = commitRefCache;
+        this.blobContentCache = blobContentCache;
+        this.treeIndex = new LruCache<String, Map<String, TreeBlob>>("tree-index", scmProperties.getContentCache().getMaxTreeEntries(), Map::size)
+                .bindTo(meterRegistry);
+        // inside the conditional-request filter, so revalidations are scheduled and update the budget too;
+        // the pool picks the token before the rate limiter looks up its budget
+        this.webClient = webClientFactory.create(scmProperties.getGithub().getApiUrl(), tokenPool, rateLimiter);
+        this.graphql = new GithubGraphqlBatcher(webClient, scmProperties.getGithub().graphqlUrl(),
+                scmProperties.getGithub().getGraphql(), objectMapper, meterRegistry);
+    }
 
-    public GithubProviderService() {
-        this.webClient = WebClient.builder()
-                .clientConnector(new ReactorClientHttpConnector(
-                        HttpClient.create().followRedirect(true)
-                ))
-                .baseUrl("https://api.github.com")
-                .build();
-    }
-
-    private static boolean isBase64Like(String s) {
-        // simple heuristic: contains non-control chars but may contain '=' padding
-        if (s.isEmpty()) return false;
-        // if it's valid base64 bytes decodeable => true
-        try {
-            Base64.getDecoder().decode(s.replaceAll("\\s", ""));
-            return true;
-        } catch (IllegalArgumentException ex) {
-            return false;
-        }
+    private boolean graphqlEnabled() {
+        return scmProperties.getGithub().getGraphql().isEnabled();
     }
 
     // Helper to add auth & accept header
@@ -78,6 +122,7 @@ public class GithubProviderService implements ScmProviderService {
         String url = "/repos/" + repo;
 
         return withAuth(webClient.get().uri(url), context)
+                .attribute(ConditionalRequestCache.CACHEABLE, true)
                 .retrieve()
                 .toBodilessEntity()
                 .map(e -> true)
@@ -87,32 +132,280 @@ public class GithubProviderService implements ScmProviderService {
                 });
     }
 
+    @Override
+    public Mono<String> resolveCommitSha(ScmContext ctx, BranchRef branch) {
+        return commitRefCache.resolve(ctx.getRepository(), branch.getName(), () -> fetchBranchHead(ctx, branch.getName()));
+    }
+
+    /**
+     * Always REST, even with GraphQL on: the ref is revalidated with its ETag, and an unchanged head (304)
+     * does not count against the rate limit.
+     */
+    private Mono<String> fetchBranchHead(ScmContext ctx, String branch) {
+        String refUrl = String.format("/repos/%s/git/ref/heads/%s", ctx.getRepository(), branch);
+        return withAuth(webClient.get().uri(refUrl), ctx)
+                .attribute(ConditionalRequestCache.CACHEABLE, true)
+                .retrieve()
+                .bodyToMono(GithubRefResponse.class)
+                .map(ref -> ref.object.sha);
+    }
+
+    @Override
+    public Flux<BranchRef> listBranches(ScmContext ctx) {
+        log.info("🌿 [GitHub] listBranches repo={}", ctx.getRepository());
+        return fetchBranchPage(ctx, 1)
+                .expand(page -> page.size() < BRANCH_PAGE_SIZE ? Mono.empty() : fetchBranchPage(ctx, page.number() + 1))
+                .flatMapIterable(BranchPage::branches)
+                .map(b -> new BranchRef(b.name, b.commit == null ? null : b.commit.sha));
+    }
+
+    private Mono<BranchPage> fetchBranchPage(ScmContext ctx, int page) {
+        String url = String.format("/repos/%s/branches?per_page=%d&page=%d", ctx.getRepository(), BRANCH_PAGE_SIZE, page);
+        return withAuth(webClient.get().uri(url), ctx)
+                .attribute(ConditionalRequestCache.CACHEABLE, true)
+                .retrieve()
+                .bodyToFlux(GithubBranchResponse.class)
+                .collectList()
+                .map(branches -> new BranchPage(page, branches));
+    }
+
     // -----------------------
     // File Operations
     // -----------------------
+
+    /**
+     * Reads through the content cache: the branch is resolved to a commit, the commit's tree gives the
+     * file's blob SHA and the blob bytes come from {@link BlobContentCache} (fetched once per blob).
+     * Refs that are not branches, and paths missing from a truncated tree, fall back to the Contents API.
+     */
     @Override
     public Mono<FileContent> readFile(ScmContext ctx, BranchRef branch, String filePath) {
         log.info("📄 [GitHub] readFile repo={}, branch={}, path={}", ctx.getRepository(), branch.getName(), filePath);
-        String url = String.format("/repos/%s/contents/%s?ref=%s", ctx.getRepository(), filePath, branch.getName());
+        if (!scmProperties.getContentCache().isEnabled()) {
+            return readFileAtRef(ctx, branch.getName(), filePath);
+        }
+        String path = filePath.startsWith("/") ? filePath.substring(1) : filePath;
+
+        return resolveCommitSha(ctx, branch)
+                .map(Optional::of)
+                .onErrorResume(GithubProviderService::isNotFound, e -> Mono.just(Optional.empty()))
+                .flatMap(commitSha -> commitSha
+                        .map(sha -> readFileAtCommit(ctx, sha, path))
+                        .orElseGet(() -> readFileAtRef(ctx, branch.getName(), filePath)));
+    }
+
+    private Mono<FileContent> readFileAtCommit(ScmContext ctx, String commitSha, String path) {
+        return blobShaAt(ctx, commitSha, path)
+                .flatMap(blobSha -> blob(ctx, blobSha))
+                .map(bytes -> FileContent.builder()
+                        .path(path)
+                        .content(new String(bytes, StandardCharsets.UTF_8))
+                        .build())
+                .switchIfEmpty(Mono.defer(() -> readFileAtRef(ctx, commitSha, path)))
+                .doOnError(e -> log.error("❌ [GitHub] readFile error for {}: {}", path, e.getMessage()));
+    }
+
+    /**
+     * Blob SHA of {@code path} at {@code commitSha}, from the commit's (immutable, cached) recursive tree.
+     */
+    private Mono<String> blobShaAt(ScmContext ctx, String commitSha, String path) {
+        return treeAt(ctx, commitSha).flatMap(index -> Mono.justOrEmpty(index.get(path)).map(TreeBlob::sha));
+    }
+
+    private Mono<Map<String, TreeBlob>> treeAt(ScmContext ctx, String commitSha) {
+        String key = ctx.getRepository() + "@" + commitSha;
+        Map<String, TreeBlob> cached = treeIndex.get(key);
+        if (cached != null) {
+            return Mono.just(cached);
+        }
+        // a recursive tree can be megabytes: concurrent misses at a new commit share one fetch
+        String flightKey = key + "|" + ConditionalRequestCache.tokenIdentity(ctx.getAuthToken());
+        return singleFlight.mono("fetchTree", flightKey, () -> fetchTree(ctx, commitSha)
+                .doOnNext(index -> treeIndex.put(key, index)));
+    }
+
+    /**
+     * One tree lookup for the whole batch, then the blobs in parallel through {@link BlobContentCache}.
+     * Paths missing from the tree (or beyond a truncated one) are tried once on the Contents API; refs that
+     * are not branches read every file from it.
+     */
+    @Override
+    public Flux<FileContent> readFiles(ScmContext ctx, BranchRef branch, List<String> filePaths) {
+        log.info("📚 [GitHub] readFiles repo={}, branch={}, files={}", ctx.getRepository(), branch.getName(), filePaths.size());
+        List<String> paths = filePaths.stream()
+                .map(path -> path.startsWith("/") ? path.substring(1) : path)
+                .filter(path -> !path.isEmpty())
+                .distinct()
+                .toList();
+        int concurrency = scmProperties.getBatchRead().getConcurrency();
+
+        return resolveCommitSha(ctx, branch)
+                .map(Optional::of)
+                .onErrorResume(GithubProviderService::isNotFound, e -> Mono.just(Optional.empty()))
+                .flatMapMany(commitSha -> commitSha
+                        .map(sha -> treeAt(ctx, sha).flatMapMany(index -> Flux.fromIterable(paths)
+                                .flatMap(path -> {
+                                    TreeBlob blob = index.get(path);
+                                    return blob == null
+                                            ? readFileIfExists(ctx, sha, path)
+                                            : blob(ctx, blob.sha())
+                                            .map(bytes -> FileContent.builder()
+                                                    .path(path)
+                                                    .content(new String(bytes, StandardCharsets.UTF_8))
+                                                    .build());
+                                }, concurrency)))
+                        .orElseGet(() -> Flux.fromIterable(paths)
+                                .flatMap(path -> readFileIfExists(ctx, branch.getName(), path), concurrency)))
+                .doOnError(e -> log.error("❌ [GitHub] readFiles error for {}: {}", ctx.getRepository(), e.getMessage()));
+    }
+
+    /**
+     * Empty only when the file does not exist; any other failure is passed on.
+     */
+    private Mono<FileContent> readFileIfExists(ScmContext ctx, String ref, String path) {
+        return readFileAtRef(ctx, ref, path)
+                .onErrorResume(GithubProviderService::isNotFound, e -> Mono.empty());
+    }
+
+    private static boolean isNotFound(Throwable e) {
+        return e instanceof NotFoundException || e instanceof WebClientResponseException.NotFound;
+    }
+
+    @Override
+    public Flux<String> listFiles(ScmContext ctx, BranchRef branch) {
+        log.info("🗂️ [GitHub] listFiles repo={}, branch={}", ctx.getRepository(), branch.getName());
+        return resolveCommitSha(ctx, branch)
+                .flatMap(sha -> treeAt(ctx, sha))
+                .flatMapIterable(index -> index.keySet().stream().sorted().toList());
+    }
+
+    private Mono<Map<String, TreeBlob>> fetchTree(ScmContext ctx, String commitSha) {
+        String url = String.format("/repos/%s/git/trees/%s?recursive=1", ctx.getRepository(), commitSha);
+        return withAuth(webClient.get().uri(url), ctx)
+                .retrieve()
+                .bodyToMono(GithubTreeResponse.class)
+                .map(tree -> {
+                    if (tree.truncated) {
+                        log.warn("⚠️ [GitHub] tree of {}@{} is truncated; missing paths use the Contents API", ctx.getRepository(), commitSha);
+                    }
+                    Map<String, TreeBlob> index = new HashMap<>();
+                    if (tree.tree != null) {
+                        tree.tree.stream()
+                                .filter(entry -> "blob".equals(entry.type))
+                                .forEach(entry -> index.put(entry.path, new TreeBlob(entry.sha, entry.mode, entry.size)));
+                    }
+                    return index;
+                });
+    }
+
+    /**
+     * Blob bytes through {@link BlobContentCache}; concurrent misses for one blob share one fetch.
+     */
+    private Mono<byte[]> blob(ScmContext ctx, String blobSha) {
+        return blobContentCache.get(blobSha, () -> singleFlight.mono("fetchBlob",
+                blobSha + "|" + ConditionalRequestCache.tokenIdentity(ctx.getAuthToken()), () -> fetchBlob(ctx, blobSha)));
+    }
+
+    /**
+     * Text blobs go through the GraphQL batch; binary or oversized ones come raw from REST.
+     */
+    private Mono<byte[]> fetchBlob(ScmContext ctx, String blobSha) {
+        if (!graphqlEnabled()) {
+            return fetchRawBlob(ctx, blobSha);
+        }
+        return graphql.blob(ctx, blobSha)
+                .filter(blob -> blob.text() != null)
+                .map(blob -> blob.text().getBytes(StandardCharsets.UTF_8))
+                .switchIfEmpty(Mono.defer(() -> fetchRawBlob(ctx, blobSha)));
+    }
+
+    /**
+     * Held in memory up to {@code rms.scm.http.max-in-memory-size}; larger blobs fail with
+     * {@link org.springframework.core.io.buffer.DataBufferLimitException} and are read with {@link #streamFile}.
+     */
+    private Mono<byte[]> fetchRawBlob(ScmContext ctx, String blobSha) {
+        String url = String.format("/repos/%s/git/blobs/%s", ctx.getRepository(), blobSha);
+        return withAuth(webClient.get().uri(url), ctx)
+                .accept(GITHUB_RAW)
+                .retrieve()
+                .bodyToMono(byte[].class)
+                .defaultIfEmpty(new byte[0]);
+    }
+
+    /**
+     * File at a branch, tag or commit without going through the tree: one field of a GraphQL batch, or the
+     * Contents API when GraphQL is off or the file is not served as text.
+     */
+    private Mono<FileContent> readFileAtRef(ScmContext ctx, String ref, String filePath) {
+        if (!graphqlEnabled()) {
+            return readFileFromContentsApi(ctx, ref, filePath);
+        }
+        String path = filePath.startsWith("/") ? filePath.substring(1) : filePath;
+        return graphql.fileAt(ctx, ref, path)
+                .switchIfEmpty(Mono.error(() -> new NotFoundException("File not found: " + filePath)))
+                .flatMap(blob -> blob.text() == null
+                        ? readFileFromContentsApi(ctx, ref, filePath)
+                        : Mono.just(FileContent.builder()
+                        .path(path)
+                        .content(blob.text())
+                        .build()));
+    }
+
+    /**
+     * Raw media type: the bytes come as the body (one copy into the result), and files over 1 MB, for which
+     * the JSON form carries no content, are served up to the in-memory limit.
+     */
+    private Mono<FileContent> readFileFromContentsApi(ScmContext ctx, String ref, String filePath) {
+        String url = String.format("/repos/%s/contents/%s?ref=%s", ctx.getRepository(), filePath, ref);
 
         return withAuth(webClient.get().uri(url), ctx)
-                .accept(MediaType.APPLICATION_JSON)
+                .attribute(ConditionalRequestCache.CACHEABLE, true)
+                .accept(GITHUB_RAW)
                 .exchangeToMono(response -> handleFileResponse(response, filePath))
                 .doOnError(e -> log.error("❌ [GitHub] readFile error for {}: {}", filePath, e.getMessage()));
     }
 
     private Mono<FileContent> handleFileResponse(ClientResponse response, String filePath) {
-        if (response.statusCode().is4xxClientError()) {
-            return Mono.error(new RuntimeException("File not found or unauthorized: " + filePath));
+        if (response.statusCode().value() == HttpStatus.NOT_FOUND.value()) {
+            return response.releaseBody().then(Mono.error(new NotFoundException("File not found: " + filePath)));
         }
-        return response.bodyToMono(GithubFileResponse.class)
-                .map(r -> {
-                    byte[] decoded = r.content == null ? new byte[0] : Base64.getDecoder().decode(r.content.replaceAll("\\s", ""));
-                    return FileContent.builder()
-                            .path(r.path)
-                            .content(new String(decoded, StandardCharsets.UTF_8))
-                            .build();
-                });
+        if (!response.statusCode().is2xxSuccessful()) {
+            return response.createException().flatMap(Mono::error);
+        }
+        return response.bodyToMono(byte[].class)
+                .defaultIfEmpty(new byte[0])
+                .map(bytes -> FileContent.builder()
+                        .path(filePath.startsWith("/") ? filePath.substring(1) : filePath)
+                        .content(new String(bytes, StandardCharsets.UTF_8))
+                        .build());
+    }
+
+    /**
+     * Pipes the raw file body through without buffering it, for files of any size the API serves (100 MB).
+     */
+    @Override
+    public Flux<DataBuffer> streamFile(ScmContext ctx, BranchRef branch, String filePath) {
+        log.info("📤 [GitHub] streamFile repo={}, branch={}, path={}", ctx.getRepository(), branch.getName(), filePath);
+        String url = String.format("/repos/%s/contents/%s?ref=%s", ctx.getRepository(), filePath, branch.getName());
+
+        return withAuth(webClient.get().uri(url), ctx)
+                .accept(GITHUB_RAW)
+                .exchangeToFlux(response -> response.statusCode().is2xxSuccessful()
+                        ? response.bodyToFlux(DataBuffer.class)
+                        : response.createException().flatMapMany(Flux::error))
+                .doOnError(e -> log.error("❌ [GitHub] streamFile error for {}: {}", filePath, e.getMessage()));
+    }
+
+    /**
+     * From the commit's cached tree index; empty for refs that are not branches and paths the tree lacks.
+     */
+    @Override
+    public Mono<Long> fileSize(ScmContext ctx, BranchRef branch, String filePath) {
+        String path = filePath.startsWith("/") ? filePath.substring(1) : filePath;
+        return resolveCommitSha(ctx, branch)
+                .onErrorResume(GithubProviderService::isNotFound, e -> Mono.empty())
+                .flatMap(sha -> treeAt(ctx, sha))
+                .flatMap(index -> Mono.justOrEmpty(index.get(path)).mapNotNull(TreeBlob::size));
     }
 
     @Override
@@ -139,6 +432,7 @@ public class GithubProviderService implements ScmProviderService {
 
         // 1) get SHA of base branch
         return withAuth(webClient.get().uri(refUrl), ctx)
+                .attribute(ConditionalRequestCache.CACHEABLE, true)
                 .retrieve()
                 .bodyToMono(GithubRefResponse.class)
                 .flatMap(refResp -> {
@@ -148,6 +442,7 @@ public class GithubProviderService implements ScmProviderService {
                     return withAuth(webClient.post().uri(createUrl).bodyValue(req), ctx)
                             .retrieve()
                             .toBodilessEntity()
+                            .doOnSuccess(r -> commitRefCache.invalidate(repo, newBranchName))
                             .map(r -> new BranchRef(newBranchName, sha));
                 })
                 .onErrorMap(e -> {
@@ -169,6 +464,7 @@ public class GithubProviderService implements ScmProviderService {
         return withAuth(webClient.delete().uri(url), ctx)
                 .retrieve()
                 .toBodilessEntity()
+                .doFinally(signal -> commitRefCache.invalidate(repo, branch.getName()))
                 .map(e -> new ScmResult("Branch deleted: " + branch.getName()))
                 .onErrorResume(e -> {
                     log.error("❌ [GitHub] deleteBranch failed: {}", e.getMessage());
@@ -177,87 +473,253 @@ public class GithubProviderService implements ScmProviderService {
     }
 
     /**
-     * applyPatch expects PATCH.diff to be a JSON array:
+     * applyPatch accepts PATCH.diff either as a unified diff (as produced by {@code git diff}) or as a JSON array:
      * [
-     * { "path": "src/Main.java", "content": "plain file content or base64:" },
+     * { "path": "src/Main.java", "content": "plain file content or base64", "encoding": "auto|plain|base64" },
      * ...
      * ]
+     * {@code encoding} is optional; {@code auto} (the default) treats content as base64 only when it is
+     * padded standard base64 (see {@link Base64Content}).
+     * <p>
+     * For a unified diff only the touched files are fetched; hunks are applied locally and the resulting
+     * files are written like JSON entries (deleted and renamed-away files are removed).
      * <p>
-     * For each entry we will:
+     * In {@link ScmProperties.ApplyPatchMode#GIT_DATA} mode (default) the whole patch becomes a single commit:
+     * - upload one blob per file (in parallel)
+     * - create one tree on top of the branch head's tree; files keep their mode from that tree (a diff's
+     * {@code new mode} / {@code new file mode} header overrides it, new files default to 100644)
+     * - create one commit and fast-forward the branch ref to it
+     * <p>
+     * In {@link ScmProperties.ApplyPatchMode#CONTENTS} mode, for each entry we will:
      * - GET existing file (to fetch sha if exists)
      * - PUT /repos/{repo}/contents/{path} with { message, content(base64), branch, sha? }
      */
     @Override
-    public Mono<ScmResult> applyPatch(ScmContext ctx, BranchRef branch, Patch patch, String commitMessage) {
+    public Mono<ScmResult> applyPatch(ScmContext ctx, BranchRef branch, Patch patch, String message) {
         String repo = ctx.getRepository();
-        log.info("🩹 [GitHub] applyPatch repo={}, branch={} commitMessage={}", repo, branch.getName(), commitMessage);
-
-        // Parse patch.diff as JSON array of { path, content }
-        List<Map<String, Object>> files;
-        try {
-            files = objectMapper.readValue(patch.getDiff(), new TypeReference<>() {
-            });
-        } catch (Exception e) {
-            String msg = "applyPatch: failed to parse patch.diff as JSON array of {path,content}";
-            log.error("❌ [GitHub] {} - {}", msg, e.getMessage());
-            return Mono.just(new ScmResult(msg + ": " + e.getMessage()));
+        String commitMessage = message == null || message.isBlank() ? DEFAULT_COMMIT_MESSAGE : message;
+        ScmProperties.ApplyPatchMode mode = scmProperties.getGithub().getApplyPatchMode();
+        log.info("🩹 [GitHub] applyPatch repo={}, branch={} commitMessage={} mode={}", repo, branch.getName(), commitMessage, mode);
+
+        // resolved once, past the ref cache: originals are read at this commit and the new commit is built on it,
+        // so a branch that moves meanwhile fails the (non-forced) ref update instead of being overwritten
+        Mono<String> head = commitRefCache.resolve(repo, branch.getName(), Duration.ZERO, () -> fetchBranchHead(ctx, branch.getName()))
+                .cache();
+
+        Mono<List<PatchFile>> files;
+        if (UnifiedDiffParser.isUnifiedDiff(patch.getDiff())) {
+            List<FileDiff> diffs;
+            try {
+                diffs = UnifiedDiffParser.parse(patch.getDiff());
+            } catch (Exception e) {
+                String msg = "applyPatch: failed to parse patch.diff as unified diff";
+                log.error("❌ [GitHub] {} - {}", msg, e.getMessage());
+                return Mono.just(new ScmResult(msg + ": " + e.getMessage()));
+            }
+            files = head.flatMap(headSha -> resolveUnifiedDiff(ctx, headSha, diffs));
+        } else {
+            // Parse patch.diff as JSON array of { path, content }
+            try {
+                files = Mono.just(parsePatchFiles(patch));
+            } catch (Exception e) {
+                String msg = "applyPatch: failed to parse patch.diff as JSON array of {path,content}";
+                log.error("❌ [GitHub] {} - {}", msg, e.getMessage());
+                return Mono.just(new ScmResult(msg + ": " + e.getMessage()));
+            }
         }
 
-        // Apply files sequentially
-        return Flux.fromIterable(files)
-                .concatMap(fileObj -> {
-                    String path = String.valueOf(fileObj.get("path"));
-                    Object contentObj = fileObj.get("content");
-                    if (path == null || contentObj == null) {
-                        return Mono.error(new RuntimeException("Invalid file entry, missing path or content"));
+        return files
+                .flatMap(resolved -> mode == ScmProperties.ApplyPatchMode.CONTENTS
+                        ? applyPatchWithContentsApi(ctx, branch, resolved, commitMessage)
+                        : head.flatMap(headSha -> applyPatchWithGitData(ctx, branch, headSha, resolved, commitMessage)))
+                // the branch has (or may have) moved
+                .doFinally(signal -> commitRefCache.invalidate(repo, branch.getName()))
+                .onErrorResume(e -> {
+                    log.error("❌ [GitHub] applyPatch failed: {}", e.getMessage());
+                    return Mono.just(new ScmResult(e.getMessage()));
+                });
+    }
+
+    /**
+     * Fetches the files a unified diff touches (in parallel, all at {@code headSha}) and applies their hunks.
+     */
+    private Mono<List<PatchFile>> resolveUnifiedDiff(ScmContext ctx, String headSha, List<FileDiff> diffs) {
+        return parallelStage.execute(ctx.getRepository(), "diff-fetch", diffs, FileDiff::path, diff -> {
+                    if (diff.isDeletedFile()) {
+                        return Mono.just(List.of(PatchFile.delete(diff.oldPath())));
                     }
-                    String rawContent = String.valueOf(contentObj);
+                    Mono<String> original = diff.isNewFile()
+                            ? Mono.just("")
+                            : readFileAtHead(ctx, headSha, diff.oldPath()).map(FileContent::getContent);
+                    return original.map(text -> {
+                        String patched = UnifiedDiffApplier.apply(text, diff);
+                        // a rename keeps the source's mode unless the diff sets one
+                        PatchFile write = new PatchFile(diff.newPath(), Base64.getEncoder().encodeToString(patched.getBytes(StandardCharsets.UTF_8)),
+                                diff.newMode(), diff.isNewFile() ? null : diff.oldPath());
+                        return diff.isRename() ? List.of(write, PatchFile.delete(diff.oldPath())) : List.of(write);
+                    });
+                })
+                .map(perDiff -> perDiff.stream().flatMap(List::stream).toList());
+    }
 
-                    // If content looks base64 (heuristic: contains non-printable or many "=" at end), allow as-is
-                    boolean looksBase64 = isBase64Like(rawContent);
+    private Mono<FileContent> readFileAtHead(ScmContext ctx, String headSha, String filePath) {
+        if (!scmProperties.getContentCache().isEnabled()) {
+            return readFileAtRef(ctx, headSha, filePath);
+        }
+        return readFileAtCommit(ctx, headSha, filePath.startsWith("/") ? filePath.substring(1) : filePath);
+    }
 
-                    String base64Content = looksBase64 ? rawContent : Base64.getEncoder().encodeToString(rawContent.getBytes(StandardCharsets.UTF_8));
+    private List<PatchFile> parsePatchFiles(Patch patch) throws Exception {
+        List<Map<String, Object>> entries = objectMapper.readValue(patch.getDiff(), new TypeReference<>() {
+        });
+        List<PatchFile> files = new ArrayList<>(entries.size());
+        for (Map<String, Object> fileObj : entries) {
+            Object pathObj = fileObj.get("path");
+            Object contentObj = fileObj.get("content");
+            if (pathObj == null || contentObj == null) {
+                throw new IllegalArgumentException("Invalid file entry, missing path or content");
+            }
+            String rawContent = String.valueOf(contentObj);
+            Object encodingObj = fileObj.get("encoding");
+            Base64Content.Encoding encoding = Base64Content.Encoding.of(encodingObj == null ? null : String.valueOf(encodingObj));
+            String base64Content = encoding.isBase64(rawContent)
+                    ? rawContent
+                    : Base64.getEncoder().encodeToString(rawContent.getBytes(StandardCharsets.UTF_8));
+            files.add(PatchFile.write(String.valueOf(pathObj), base64Content));
+        }
+        return files;
+    }
 
-                    // Try to GET existing file to obtain sha
-                    String getUrl = String.format("/repos/%s/contents/%s?ref=%s", repo, path, branch.getName());
+    /**
+     * Single-commit apply via the Git Data API (refs, commits, blobs, trees) on top of {@code headSha}.
+     */
+    private Mono<ScmResult> applyPatchWithGitData(ScmContext ctx, BranchRef branch, String headSha, List<PatchFile> files, String commitMessage) {
+        String repo = ctx.getRepository();
+        if (files.isEmpty()) {
+            return Mono.just(new ScmResult("Applied patch to 0 files"));
+        }
 
-                    return withAuth(webClient.get().uri(getUrl), ctx)
+        // 1) the head commit's tree
+        Mono<GithubCommitResponse> head = withAuth(webClient.get().uri(String.format("/repos/%s/git/commits/%s", repo, headSha)), ctx)
+                .retrieve()
+                .bodyToMono(GithubCommitResponse.class);
+
+        // 2) upload blobs in parallel, keeping patch order for the tree
+        Mono<List<Optional<String>>> blobShas = parallelStage.execute(repo, "blob-upload", files, PatchFile::path,
+                file -> file.isDelete() ? Mono.just(Optional.<String>empty()) : createBlob(ctx, file).map(Optional::of));
+
+        return Mono.zip(head, blobShas)
+                // existing files keep their mode (executable, symlink), so read it from the head tree
+                .flatMap(tuple -> treeAt(ctx, tuple.getT1().sha)
+                        .map(index -> treeEntries(files, tuple.getT2(), index))
+                        .map(entries -> Tuples.of(tuple.getT1(), entries)))
+                .flatMap(tuple -> {
+                    GithubCommitResponse headCommit = tuple.getT1();
+                    // 3) one tree on top of the head tree
+                    GithubCreateTreeRequest treeReq = new GithubCreateTreeRequest(headCommit.tree.sha, tuple.getT2());
+                    return withAuth(webClient.post().uri(String.format("/repos/%s/git/trees", repo)).bodyValue(treeReq), ctx)
                             .retrieve()
-                            .onStatus(status -> status.value() == 404, resp -> Mono.empty()) // we'll handle not found by switching to create
-                            .bodyToMono(GithubFileResponse.class)
-                            .flatMap(existing -> {
-                                // Update existing file (need sha)
-                                GithubCreateUpdateFileRequest req = new GithubCreateUpdateFileRequest(commitMessage, base64Content, branch.getName(), existing.sha);
-                                String putUrl = String.format("/repos/%s/contents/%s", repo, path);
-                                return withAuth(webClient.put().uri(putUrl).bodyValue(req), ctx)
+                            .bodyToMono(GithubShaResponse.class)
+                            // 4) one commit
+                            .flatMap(tree -> {
+                                GithubCreateCommitRequest commitReq = new GithubCreateCommitRequest(commitMessage, tree.sha, List.of(headCommit.sha));
+                                return withAuth(webClient.post().uri(String.format("/repos/%s/git/commits", repo)).bodyValue(commitReq), ctx)
                                         .retrieve()
-                                        .toBodilessEntity()
-                                        .map(r -> "updated:" + path)
-                                        .onErrorMap(e -> new RuntimeException("update failed for " + path + ": " + e.getMessage()));
+                                        .bodyToMono(GithubShaResponse.class);
                             })
-                            .onErrorResume(e -> {
-                                // if GET failed (404 or other), attempt create
-                                // create
-                                // fallback: attempt create (PUT without sha)
-                                GithubCreateUpdateFileRequest req = new GithubCreateUpdateFileRequest(commitMessage, base64Content, branch.getName(), null);
-                                String putUrl = String.format("/repos/%s/contents/%s", repo, path);
-                                return withAuth(webClient.put().uri(putUrl).bodyValue(req), ctx)
+                            // 5) fast-forward the branch once; rejected if it is no longer at headSha
+                            .flatMap(commit -> {
+                                GithubUpdateRefRequest refReq = new GithubUpdateRefRequest(commit.sha, false);
+                                String updateRefUrl = String.format("/repos/%s/git/refs/heads/%s", repo, branch.getName());
+                                return withAuth(webClient.patch().uri(updateRefUrl).bodyValue(refReq), ctx)
                                         .retrieve()
                                         .toBodilessEntity()
-                                        .map(r -> "created:" + path)
-                                        .onErrorMap(err -> new RuntimeException("create failed for " + path + ": " + err.getMessage()));
-                            })
-                            .onErrorResume(err -> {
-                                // Some GitHub error mapping -> wrap as error to stop the chain
-                                return Mono.error(new RuntimeException("applyPatch failed for " + path + ": " + err.getMessage()));
+                                        .thenReturn(commit.sha);
                             });
                 })
+                .map(commitSha -> new ScmResult("Applied patch to " + files.size() + " files in commit " + commitSha + ": "
+                        + files.stream().map(PatchFile::path).collect(Collectors.joining(", "))));
+    }
+
+    private static List<GithubTreeEntry> treeEntries(List<PatchFile> files, List<Optional<String>> blobShas, Map<String, TreeBlob> base) {
+        List<GithubTreeEntry> entries = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            PatchFile file = files.get(i);
+            TreeBlob existing = file.modeOf() == null ? null : base.get(file.modeOf());
+            String mode = file.mode() != null ? file.mode()
+                    : existing != null && existing.mode() != null ? existing.mode()
+                    : DEFAULT_FILE_MODE;
+            // a null sha removes the path from the tree
+            entries.add(new GithubTreeEntry(file.path(), mode, "blob", blobShas.get(i).orElse(null)));
+        }
+        return entries;
+    }
+
+    private Mono<String> createBlob(ScmContext ctx, PatchFile file) {
+        String url = String.format("/repos/%s/git/blobs", ctx.getRepository());
+        return withAuth(webClient.post().uri(url).bodyValue(new GithubCreateBlobRequest(file.base64Content(), "base64")), ctx)
+                .retrieve()
+                .bodyToMono(GithubShaResponse.class)
+                .map(r -> r.sha)
+                .onErrorMap(e -> new RuntimeException("blob upload failed for " + file.path() + ": " + e.getMessage()));
+    }
+
+    /**
+     * Legacy apply via the Contents API: one commit per file.
+     * <p>
+     * Existing-file SHAs are looked up in parallel up front; the PUTs stay sequential because each one
+     * moves the branch head and concurrent writes to the same branch are rejected by GitHub.
+     */
+    private Mono<ScmResult> applyPatchWithContentsApi(ScmContext ctx, BranchRef branch, List<PatchFile> files, String commitMessage) {
+        String repo = ctx.getRepository();
+
+        return parallelStage.execute(repo, "sha-lookup", files, PatchFile::path, file -> findExistingSha(ctx, branch, file.path()))
+                .flatMapMany(shas -> Flux.range(0, files.size())
+                        .concatMap(i -> putFile(ctx, branch, files.get(i), shas.get(i).orElse(null), commitMessage)))
                 .collectList()
-                .map(results -> new ScmResult("Applied patch to " + results.size() + " files: " + String.join(", ", results)))
-                .onErrorResume(e -> {
-                    log.error("❌ [GitHub] applyPatch failed: {}", e.getMessage());
-                    return Mono.just(new ScmResult(e.getMessage()));
-                });
+                .map(results -> new ScmResult("Applied patch to " + results.size() + " files: " + String.join(", ", results)));
+    }
+
+    /**
+     * Returns the blob SHA of an existing file, or empty when the file does not exist (or cannot be read),
+     * in which case the file is created.
+     */
+    private Mono<Optional<String>> findExistingSha(ScmContext ctx, BranchRef branch, String path) {
+        String getUrl = String.format("/repos/%s/contents/%s?ref=%s", ctx.getRepository(), path, branch.getName());
+        return withAuth(webClient.get().uri(getUrl), ctx)
+                .retrieve()
+                .bodyToMono(GithubFileResponse.class)
+                .map(existing -> Optional.ofNullable(existing.sha))
+                .onErrorResume(e -> Mono.just(Optional.empty()))
+                .defaultIfEmpty(Optional.empty());
+    }
+
+    private Mono<String> putFile(ScmContext ctx, BranchRef branch, PatchFile file, String existingSha, String commitMessage) {
+        String path = file.path();
+        if (file.isDelete()) {
+            return deleteFile(ctx, branch, path, existingSha, commitMessage);
+        }
+        boolean create = existingSha == null;
+        GithubCreateUpdateFileRequest req = new GithubCreateUpdateFileRequest(commitMessage, file.base64Content(), branch.getName(), existingSha);
+        String putUrl = String.format("/repos/%s/contents/%s", ctx.getRepository(), path);
+        return withAuth(webClient.put().uri(putUrl).bodyValue(req), ctx)
+                .retrieve()
+                .toBodilessEntity()
+                .map(r -> (create ? "created:" : "updated:") + path)
+                .onErrorMap(e -> new RuntimeException("applyPatch failed for " + path + ": " + (create ? "create" : "update") + " failed: " + e.getMessage()));
+    }
+
+    private Mono<String> deleteFile(ScmContext ctx, BranchRef branch, String path, String existingSha, String commitMessage) {
+        if (existingSha == null) {
+            return Mono.error(new RuntimeException("applyPatch failed for " + path + ": delete failed: file not found"));
+        }
+        Map<String, String> body = Map.of("message", commitMessage, "sha", existingSha, "branch", branch.getName());
+        String url = String.format("/repos/%s/contents/%s", ctx.getRepository(), path);
+        return withAuth(webClient.method(HttpMethod.DELETE).uri(url).bodyValue(body), ctx)
+                .retrieve()
+                .toBodilessEntity()
+                .map(r -> "deleted:" + path)
+                .onErrorMap(e -> new RuntimeException("applyPatch failed for " + path + ": delete failed: " + e.getMessage()));
     }
 
     // -----------------------
@@ -352,6 +814,15 @@ public class GithubProviderService implements ScmProviderService {
     // -----------------------
     // GitHub DTOs (internal)
     // -----------------------
+    /**
+     * The file does not exist: a 404, or {@code null} for its GraphQL field.
+     */
+    private static final class NotFoundException extends RuntimeException {
+        private NotFoundException(String message) {
+            super(message);
+        }
+    }
+
     private static class GithubFileResponse {
         public String path;
         public String content;
@@ -366,9 +837,86 @@ public class GithubProviderService implements ScmProviderService {
         public String sha;
     }
 
+    private static class GithubBranchResponse {
+        public String name;
+        public GithubRefObject commit;
+    }
+
+    private record BranchPage(int number, List<GithubBranchResponse> branches) {
+        int size() {
+            return branches.size();
+        }
+    }
+
+    private static class GithubTreeResponse {
+        public String sha;
+        public List<GithubTreeItem> tree;
+        public boolean truncated;
+    }
+
+    private static class GithubTreeItem {
+        public String path;
+        public String mode;
+        public String type;
+        public String sha;
+        public Long size;
+    }
+
+    /**
+     * A file of a commit tree: its blob SHA, git file mode (100644, 100755 or 120000 for a symlink) and size
+     * in bytes ({@code null} if GitHub did not report it).
+     */
+    private record TreeBlob(String sha, String mode, Long size) {
+    }
+
     private record GithubCreateRefRequest(String ref, String sha) {
     }
 
+    private static class GithubCommitResponse {
+        public String sha;
+        public GithubRefObject tree;
+    }
+
+    private static class GithubShaResponse {
+        public String sha;
+    }
+
+    private record GithubCreateBlobRequest(String content, String encoding) {
+    }
+
+    private record GithubTreeEntry(String path, String mode, String type, String sha) {
+    }
+
+    private record GithubCreateTreeRequest(String base_tree, List<GithubTreeEntry> tree) {
+    }
+
+    private record GithubCreateCommitRequest(String message, String tree, List<String> parents) {
+    }
+
+    private record GithubUpdateRefRequest(String sha, boolean force) {
+    }
+
+    /**
+     * One file to write; a {@code null} content deletes the path.
+     *
+     * @param mode   git file mode to write, {@code null} to keep the mode {@code modeOf} has in the base tree
+     * @param modeOf path whose current mode the file keeps (itself, or the source of a rename); {@code null}
+     *               or absent from the base tree means a regular file
+     */
+    private record PatchFile(String path, String base64Content, String mode, String modeOf) {
+        static PatchFile write(String path, String base64Content) {
+            return new PatchFile(path, base64Content, null, path);
+        }
+
+        static PatchFile delete(String path) {
+            return new PatchFile(path, null, null, path);
+        }
+
+        boolean isDelete() {
+            return base64Content == null;
+        }
+    }
+
     /**
      * @param sha optional for update
      */
@@ -0,0 +1,323 @@
+package ir.msob.manak.rms.scm.scmprovider.github;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+import ir.msob.manak.rms.scm.ScmProperties;
+import ir.msob.manak.rms.scm.http.ConditionalRequestCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules GitHub calls against each token's rate-limit budget.
+ * <p>
+ * The budget of a {@code (token, resource)} pair is taken from the {@code X-RateLimit-*} headers of its
+ * responses. Requests wait in two queues per budget, writes (non-GET) ahead of reads. When the budget runs
+ * low, calls are spaced evenly until the window resets, and reads leave {@code read-reserve} requests for
+ * writes. A 403/429 that signals a primary or secondary limit blocks the budget (for {@code Retry-After} or
+ * until the reset) and re-queues the request instead of failing it.
+ * <p>
+ * Meters: {@code scm.github.ratelimit.remaining|limit{token,resource}},
+ * {@code scm.github.ratelimit.queued{token,resource}} and {@code scm.github.ratelimit.wait{priority}}.
+ */
+@Component
+public class GithubRateLimiter implements ExchangeFilterFunction {
+
+    private static final Logger log = LoggerFactory.getLogger(GithubRateLimiter.class);
+    /**
+     * Request attribute: return rate-limited responses instead of re-queueing them, because the caller can
+     * retry with another token.
+     */
+    static final String NO_RETRY_ATTRIBUTE = GithubRateLimiter.class.getName() + ".noRetry";
+    /**
+     * Request attribute: the credential whose budget the request spends, when it differs from the bearer
+     * token (GitHub App installation tokens are re-minted hourly but share the installation's budget).
+     */
+    static final String CREDENTIAL_ATTRIBUTE = GithubRateLimiter.class.getName() + ".credential";
+    private static final String BEARER = "Bearer ";
+
+    private final ScmProperties.RateLimit properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Budget> budgets = new ConcurrentHashMap<>();
+    private final Timer readWait;
+    private final Timer writeWait;
+
+    public GithubRateLimiter(ScmProperties scmProperties, MeterRegistry meterRegistry) {
+        this.properties = scmProperties.getGithub().getRateLimit();
+        this.meterRegistry = meterRegistry;
+        this.readWait = Timer.builder("scm.github.ratelimit.wait").tag("priority", "read").register(meterRegistry);
+        this.writeWait = Timer.builder("scm.github.ratelimit.wait").tag("priority", "write").register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        if (!properties.isEnabled()) {
+            return next.exchange(request);
+        }
+        Budget budget = budget(credential(request), resource(request.url().getPath()));
+        boolean write = request.method() != HttpMethod.GET && request.method() != HttpMethod.HEAD;
+        return exchange(request, next, budget, write, 0);
+    }
+
+    private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, Budget budget, boolean write, int attempt) {
+        long queuedAt = System.nanoTime();
+        return budget.acquire(write)
+                .timeout(properties.getMaxWait(), Mono.error(() -> new CommonRuntimeException(
+                        "GitHub rate limit: no budget for " + request.method() + " " + request.url().getPath()
+                                + " within " + properties.getMaxWait())))
+                .then(Mono.defer(() -> {
+                    (write ? writeWait : readWait).record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                    return next.exchange(request);
+                }))
+                .flatMap(response -> {
+                    HttpHeaders headers = response.headers().asHttpHeaders();
+                    budget.update(headers);
+                    if (!isRateLimited(response.statusCode().value(), headers)) {
+                        return Mono.just(response);
+                    }
+                    budget.block(headers);
+                    if (attempt >= properties.getMaxRetries() || request.attribute(NO_RETRY_ATTRIBUTE).isPresent()) {
+                        return Mono.just(response);
+                    }
+                    log.warn("⏳ [GitHub] rate limited ({}) on {} {}, re-queued (attempt {})",
+                            response.statusCode().value(), request.method(), request.url().getPath(), attempt + 1);
+                    return response.releaseBody().then(exchange(request, next, budget, write, attempt + 1));
+                });
+    }
+
+    /**
+     * Budget of {@code credential} for calls to {@code path}, as last reported by GitHub.
+     */
+    Headroom headroom(String credential, String path) {
+        Budget budget = budget(credential, resource(path));
+        synchronized (budget) {
+            long now = System.currentTimeMillis();
+            int remaining = budget.remaining < 0 || now >= budget.resetAtMillis ? Integer.MAX_VALUE : budget.remaining;
+            return new Headroom(remaining - budget.queued(), budget.blockedUntilMillis > now ? budget.blockedUntilMillis : 0);
+        }
+    }
+
+    private static String credential(ClientRequest request) {
+        return request.attribute(CREDENTIAL_ATTRIBUTE)
+                .map(String.class::cast)
+                .orElseGet(() -> {
+                    String authorization = request.headers().getFirst(HttpHeaders.AUTHORIZATION);
+                    return authorization != null && authorization.startsWith(BEARER) ? authorization.substring(BEARER.length()) : authorization;
+                });
+    }
+
+    private Budget budget(String credential, String resource) {
+        String token = ConditionalRequestCache.tokenIdentity(credential);
+        return budgets.computeIfAbsent(token + "|" + resource, key -> newBudget(token, resource));
+    }
+
+    static boolean isRateLimited(int status, HttpHeaders headers) {
+        if (status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            return true;
+        }
+        return status == HttpStatus.FORBIDDEN.value()
+                && (headers.getFirst(HttpHeaders.RETRY_AFTER) != null || "0".equals(headers.getFirst("X-RateLimit-Remaining")));
+    }
+
+    /**
+     * GitHub keeps separate budgets for search and GraphQL.
+     */
+    private static String resource(String path) {
+        if (path.endsWith("/graphql")) {
+            return "graphql";
+        }
+        if (path.startsWith("/search")) {
+            return "search";
+        }
+        return "core";
+    }
+
+    private Budget newBudget(String token, String resource) {
+        Budget budget = new Budget();
+        String tokenTag = token.substring(0, Math.min(8, token.length()));
+        Gauge.builder("scm.github.ratelimit.remaining", budget, b -> b.remaining)
+                .tag("token", tokenTag).tag("resource", resource).register(meterRegistry);
+        Gauge.builder("scm.github.ratelimit.limit", budget, b -> b.limit)
+                .tag("token", tokenTag).tag("resource", resource).register(meterRegistry);
+        Gauge.builder("scm.github.ratelimit.queued", budget, Budget::queued)
+                .tag("token", tokenTag).tag("resource", resource).register(meterRegistry);
+        return budget;
+    }
+
+    /**
+     * One token's budget for one resource. All state is guarded by the instance lock; permits are handed out
+     * outside it.
+     */
+    private final class Budget {
+        /**
+         * -1 until the first response tells us.
+         */
+        private volatile int limit = -1;
+        private volatile int remaining = -1;
+        private long resetAtMillis;
+        private long blockedUntilMillis;
+        private long nextAllowedMillis;
+        private boolean drainScheduled;
+        private final Deque<MonoSink<Void>> writes = new ArrayDeque<>();
+        private final Deque<MonoSink<Void>> reads = new ArrayDeque<>();
+
+        Mono<Void> acquire(boolean write) {
+            return Mono.create(sink -> {
+                synchronized (this) {
+                    long now = System.currentTimeMillis();
+                    if (writes.isEmpty() && (write || reads.isEmpty()) && delay(write, now) == 0) {
+                        consume(now);
+                    } else {
+                        Deque<MonoSink<Void>> queue = write ? writes : reads;
+                        queue.addLast(sink);
+                        // caller gave up (timeout/cancel): do not spend budget on it
+                        sink.onCancel(() -> {
+                            synchronized (this) {
+                                queue.remove(sink);
+                            }
+                        });
+                        scheduleDrain(0);
+                        return;
+                    }
+                }
+                sink.success();
+            });
+        }
+
+        private void drain() {
+            List<MonoSink<Void>> granted = new ArrayList<>();
+            synchronized (this) {
+                drainScheduled = false;
+                while (true) {
+                    boolean write = !writes.isEmpty();
+                    Deque<MonoSink<Void>> queue = write ? writes : reads;
+                    if (queue.isEmpty()) {
+                        break;
+                    }
+                    long now = System.currentTimeMillis();
+                    long wait = delay(write, now);
+                    if (wait > 0) {
+                        scheduleDrain(wait);
+                        break;
+                    }
+                    consume(now);
+                    granted.add(queue.pollFirst());
+                }
+            }
+            granted.forEach(MonoSink::success);
+        }
+
+        /**
+         * Milliseconds until a request of this priority may go out.
+         */
+        private long delay(boolean write, long now) {
+            if (now < blockedUntilMillis) {
+                return blockedUntilMillis - now;
+            }
+            if (remaining < 0) {
+                return 0;
+            }
+            if (now >= resetAtMillis) {
+                // new window; the next response reports the real figure
+                remaining = limit;
+                return 0;
+            }
+            int floor = write ? 0 : properties.getReadReserve();
+            if (remaining <= floor) {
+                return resetAtMillis - now;
+            }
+            return Math.max(0, nextAllowedMillis - now);
+        }
+
+        private void consume(long now) {
+            if (remaining <= 0) {
+                return;
+            }
+            remaining--;
+            if (remaining < properties.getPaceBelow() && resetAtMillis > now) {
+                nextAllowedMillis = now + (resetAtMillis - now) / Math.max(1, remaining);
+            }
+        }
+
+        private void scheduleDrain(long delayMillis) {
+            if (drainScheduled) {
+                return;
+            }
+            drainScheduled = true;
+            Schedulers.parallel().schedule(this::drain, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        synchronized void update(HttpHeaders headers) {
+            String limitHeader = headers.getFirst("X-RateLimit-Limit");
+            String remainingHeader = headers.getFirst("X-RateLimit-Remaining");
+            String resetHeader = headers.getFirst("X-RateLimit-Reset");
+            if (limitHeader == null || remainingHeader == null || resetHeader == null) {
+                return;
+            }
+            try {
+                limit = Integer.parseInt(limitHeader);
+                remaining = Integer.parseInt(remainingHeader);
+                resetAtMillis = Long.parseLong(resetHeader) * 1000;
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring malformed rate-limit headers: {}", e.getMessage());
+            }
+        }
+
+        synchronized void block(HttpHeaders headers) {
+            long now = System.currentTimeMillis();
+            String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+            long until;
+            if (retryAfter != null) {
+                until = now + parseSeconds(retryAfter, properties.getDefaultRetryAfter()).toMillis();
+            } else if (remaining == 0 && resetAtMillis > now) {
+                until = resetAtMillis;
+            } else {
+                until = now + properties.getDefaultRetryAfter().toMillis();
+            }
+            blockedUntilMillis = Math.max(blockedUntilMillis, until);
+            log.warn("⛔ [GitHub] budget blocked for {}s", (blockedUntilMillis - now) / 1000);
+        }
+
+        synchronized int queued() {
+            return writes.size() + reads.size();
+        }
+    }
+
+    /**
+     * @param remaining          requests left in the window less those already queued; {@link Integer#MAX_VALUE}
+     *                           when GitHub has not reported it yet
+     * @param blockedUntilMillis end of a rate-limit block, 0 when not blocked
+     */
+    record Headroom(int remaining, long blockedUntilMillis) {
+    }
+
+    private static Duration parseSeconds(String value, Duration fallback) {
+        try {
+            return Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            // HTTP-date form is not used by GitHub
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package ir.msob.manak.rms.scm.scmprovider.github;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.msob.manak.rms.scm.ScmProperties;
+import ir.msob.manak.rms.scm.http.ConditionalRequestCache;
+import ir.msob.manak.rms.util.RepositoryUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks one token per GitHub call when the specification token lists several, and resolves GitHub App
+ * entries ({@code app:<name>/<installation id>}) to installation tokens.
+ * <p>
+ * The request arrives with {@code Authorization: Bearer <token list>}; the filter replaces it with the
+ * token that has the most budget left in {@link GithubRateLimiter}, skipping tokens that are blocked by a
+ * rate limit or cooling down after a 401. Ties rotate. A rate-limited or 401 response is retried with the
+ * next best token, up to {@code max-failovers} times; only when every token is exhausted does the limiter
+ * wait for the earliest one to come back. A single personal token passes through untouched.
+ * <p>
+ * Meters: {@code scm.github.tokenpool.failovers{reason}}.
+ */
+@Component
+public class GithubTokenPool implements ExchangeFilterFunction {
+
+    private static final Logger log = LoggerFactory.getLogger(GithubTokenPool.class);
+    private static final String BEARER = "Bearer ";
+
+    private final ScmProperties.TokenPool properties;
+    private final GithubRateLimiter rateLimiter;
+    private final GithubAppTokenProvider appTokenProvider;
+    /**
+     * token identity -> end of its bad-credentials cooldown
+     */
+    private final Map<String, Long> cooldowns = new ConcurrentHashMap<>();
+    private final AtomicInteger rotation = new AtomicInteger();
+    private final Counter rateLimitedFailovers;
+    private final Counter badCredentialsFailovers;
+
+    public GithubTokenPool(ScmProperties scmProperties, GithubRateLimiter rateLimiter,
+                           GithubAppTokenProvider appTokenProvider, MeterRegistry meterRegistry) {
+        this.properties = scmProperties.getGithub().getTokenPool();
+        this.rateLimiter = rateLimiter;
+        this.appTokenProvider = appTokenProvider;
+        this.rateLimitedFailovers = Counter.builder("scm.github.tokenpool.failovers").tag("reason", "rate-limited").register(meterRegistry);
+        this.badCredentialsFailovers = Counter.builder("scm.github.tokenpool.failovers").tag("reason", "bad-credentials").register(meterRegistry);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        String authorization = request.headers().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER)) {
+            return next.exchange(request);
+        }
+        List<String> tokens = RepositoryUtil.getTokens(authorization.substring(BEARER.length()));
+        if (tokens.isEmpty() || tokens.size() == 1 && !GithubAppTokenProvider.isAppToken(tokens.get(0))) {
+            return next.exchange(request);
+        }
+        return exchange(request, next, tokens, new HashSet<>(), 0);
+    }
+
+    private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, List<String> tokens,
+                                          Set<String> tried, int failovers) {
+        String token = select(tokens, tried, request.url().getPath());
+        tried.add(token);
+        boolean canFailover = failovers < properties.getMaxFailovers() && tried.size() < tokens.size();
+        return resolve(token)
+                .map(Optional::of)
+                .onErrorResume(e -> {
+                    coolDown(token, "has no installation token (" + e.getMessage() + ")");
+                    return canFailover ? Mono.just(Optional.empty()) : Mono.error(e);
+                })
+                .flatMap(bearer -> {
+                    if (bearer.isEmpty()) {
+                        return exchange(request, next, tokens, tried, failovers + 1);
+                    }
+                    ClientRequest.Builder builder = ClientRequest.from(request)
+                            .headers(headers -> headers.setBearerAuth(bearer.get()))
+                            .attribute(GithubRateLimiter.CREDENTIAL_ATTRIBUTE, token);
+                    if (canFailover) {
+                        builder.attribute(GithubRateLimiter.NO_RETRY_ATTRIBUTE, Boolean.TRUE);
+                    }
+                    return exchange(builder.build(), next, token, canFailover)
+                            .switchIfEmpty(Mono.defer(() -> exchange(request, next, tokens, tried, failovers + 1)));
+                });
+    }
+
+    /**
+     * Empty when the response should be retried with another token.
+     */
+    private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, String token, boolean canFailover) {
+        return next.exchange(request)
+                .flatMap(response -> {
+                    int status = response.statusCode().value();
+                    boolean badCredentials = status == HttpStatus.UNAUTHORIZED.value();
+                    if (badCredentials) {
+                        coolDown(token, "rejected (401)");
+                        if (GithubAppTokenProvider.isAppToken(token)) {
+                            appTokenProvider.invalidate(token);
+                        }
+                    }
+                    if (!canFailover || !(badCredentials || GithubRateLimiter.isRateLimited(status, response.headers().asHttpHeaders()))) {
+                        return Mono.just(response);
+                    }
+                    (badCredentials ? badCredentialsFailovers : rateLimitedFailovers).increment();
+                    log.info("🔁 [GitHub] {} on token {}, failing over", status, shortId(token));
+                    return response.releaseBody().then(Mono.<ClientResponse>empty());
+                });
+    }
+
+    private Mono<String> resolve(String token) {
+        return GithubAppTokenProvider.isAppToken(token) ? appTokenProvider.token(token) : Mono.just(token);
+    }
+
+    private void coolDown(String token, String reason) {
+        cooldowns.put(identity(token), System.currentTimeMillis() + properties.getBadCredentialsCooldown().toMillis());
+        log.warn("🔑 [GitHub] token {} {}, cooling down for {}", shortId(token), reason, properties.getBadCredentialsCooldown());
+    }
+
+    /**
+     * Healthy untried token with the most headroom; otherwise the token that becomes usable first.
+     */
+    private String select(List<String> tokens, Set<String> tried, String path) {
+        long now = System.currentTimeMillis();
+        int start = Math.floorMod(rotation.getAndIncrement(), tokens.size());
+        String best = null;
+        int bestRemaining = Integer.MIN_VALUE;
+        String earliest = null;
+        long earliestAt = Long.MAX_VALUE;
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get((start + i) % tokens.size());
+            GithubRateLimiter.Headroom headroom = rateLimiter.headroom(token, path);
+            long readyAt = Math.max(headroom.blockedUntilMillis(), cooldowns.getOrDefault(identity(token), 0L));
+            if (readyAt <= now && !tried.contains(token)) {
+                if (headroom.remaining() > bestRemaining) {
+                    best = token;
+                    bestRemaining = headroom.remaining();
+                }
+            } else if (readyAt < earliestAt) {
+                earliest = token;
+                earliestAt = readyAt;
+            }
+        }
+        return best != null ? best : earliest;
+    }
+
+    private static String identity(String token) {
+        return ConditionalRequestCache.tokenIdentity(token);
+    }
+
+    private static String shortId(String token) {
+        return identity(token).substring(0, 8);
+    }
+}
@@ -0,0 +1,309 @@
+package ir.msob.manak.rms.scm.scmprovider.local;
+
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+import ir.msob.manak.rms.scm.ScmProperties;
+import ir.msob.manak.rms.scm.scmprovider.ReadFreshness;
+import ir.msob.manak.rms.scm.scmprovider.github.GithubAppTokenProvider;
+import ir.msob.manak.rms.util.RepositoryUtil;
+import jakarta.annotation.PreDestroy;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one bare clone per remote under {@code rms.scm.local.base-path} and fetches it incrementally.
+ * <p>
+ * Clones survive restarts, so a restarted node only fetches what changed. Reads are served from the
+ * current object store while a fetch runs: a read whose staleness bound the mirror still meets gets the
+ * repository at once (and starts a background fetch once half the bound has passed), and only a read the
+ * mirror is too old for, or one following a write, waits for a fetch, without holding a thread. A mirror
+ * runs one fetch at a time with at most one queued behind it, and concurrent waiters share them. All JGit I/O runs on
+ * {@link Schedulers#boundedElastic()}.
+ */
+@Component
+public class GitMirrorManager {
+
+    private static final Logger log = LoggerFactory.getLogger(GitMirrorManager.class);
+    private static final RefSpec ALL_BRANCHES = new RefSpec("+refs/heads/*:refs/heads/*");
+
+    private final ScmProperties.Local properties;
+    private final Path basePath;
+    private final Map<String, Mirror> mirrors = new ConcurrentHashMap<>();
+
+    public GitMirrorManager(ScmProperties scmProperties) {
+        this.properties = scmProperties.getLocal();
+        this.basePath = Path.of(properties.getBasePath());
+    }
+
+    /**
+     * Opens the mirror of {@code remoteUrl}, cloning it on first use and fetching it once it is older than
+     * the configured fetch interval, or the tighter bound set through {@link ReadFreshness}.
+     */
+    public Mono<Repository> open(String remoteUrl, String token) {
+        return Mono.deferContextual(context ->
+                open(remoteUrl, token, ReadFreshness.maxStaleness(context, properties.getFetchInterval())));
+    }
+
+    /**
+     * @param maxAge fetch first if the last fetch is older than this ({@link Duration#ZERO} always fetches)
+     */
+    public Mono<Repository> open(String remoteUrl, String token, Duration maxAge) {
+        return Mono.defer(() -> mirrors.computeIfAbsent(remoteUrl, this::newMirror).sync(token, maxAge));
+    }
+
+    /**
+     * Marks an existing mirror stale after a write went to the remote, and fetches it in the background.
+     * Reads wait for a fetch that started after the write, so callers read their own writes.
+     */
+    public void refresh(String remoteUrl, String token) {
+        Mirror mirror = mirrors.get(remoteUrl);
+        if (mirror != null) {
+            mirror.markStale(token);
+        }
+    }
+
+    /**
+     * Time since the last successful fetch of {@code remoteUrl}, or {@code null} if it was never mirrored here.
+     */
+    public Duration age(String remoteUrl) {
+        Mirror mirror = mirrors.get(remoteUrl);
+        if (mirror == null || mirror.lastFetch == 0) {
+            return null;
+        }
+        return Duration.ofNanos(System.nanoTime() - mirror.lastFetch);
+    }
+
+    @PreDestroy
+    public void close() {
+        mirrors.values().forEach(Mirror::close);
+    }
+
+    private Mirror newMirror(String remoteUrl) {
+        String name = remoteUrl.replaceAll("[^A-Za-z0-9._-]", "_");
+        String suffix = UUID.nameUUIDFromBytes(remoteUrl.getBytes(StandardCharsets.UTF_8)).toString().substring(0, 8);
+        return new Mirror(remoteUrl, basePath.resolve(name + "-" + suffix + ".git"));
+    }
+
+    /**
+     * Git fetches use the first personal token of a pool; they do not count against the API rate limit.
+     * GitHub App entries are skipped, since minting is tied to the API client.
+     */
+    CredentialsProvider credentials(String token) {
+        return RepositoryUtil.getTokens(token).stream()
+                .filter(entry -> !GithubAppTokenProvider.isAppToken(entry))
+                .findFirst()
+                .map(entry -> new UsernamePasswordCredentialsProvider(properties.getUsername(), entry))
+                .orElse(null);
+    }
+
+    private final class Mirror {
+        private final String remoteUrl;
+        private final Path directory;
+        private volatile Repository repository;
+        /**
+         * {@link System#nanoTime()} at which the last successful fetch started; 0 before the first one
+         */
+        private volatile long lastFetch;
+        /**
+         * guarded by {@code this}: the running fetch, the one queued behind it, and when the mirror went stale (0 if not)
+         */
+        private Fetch running;
+        private Fetch queued;
+        private long staleSince;
+
+        private Mirror(String remoteUrl, Path directory) {
+            this.remoteUrl = remoteUrl;
+            this.directory = directory;
+        }
+
+        Mono<Repository> sync(String token, Duration maxAge) {
+            return repository(token).flatMap(repo -> {
+                long now = System.nanoTime();
+                long staleAt;
+                synchronized (this) {
+                    staleAt = staleSince;
+                }
+                if (staleAt != 0) {
+                    return fetchStartedAfter(staleAt, token).thenReturn(repo);
+                }
+                long age = now - lastFetch;
+                if (lastFetch == 0 || age >= maxAge.toNanos()) {
+                    return fetchStartedAfter(now - maxAge.toNanos(), token).thenReturn(repo);
+                }
+                if (age >= maxAge.toNanos() / 2) {
+                    // refresh ahead, so the next reads find the mirror within their bound
+                    fetchStartedAfter(now - maxAge.toNanos() / 2, token);
+                }
+                return Mono.just(repo);
+            });
+        }
+
+        void markStale(String token) {
+            long now = System.nanoTime();
+            synchronized (this) {
+                if (staleSince == 0) {
+                    staleSince = now;
+                }
+            }
+            fetchStartedAfter(now, token);
+        }
+
+        private Mono<Repository> repository(String token) {
+            Repository current = repository;
+            if (current != null) {
+                return Mono.just(current);
+            }
+            return Mono.fromCallable(() -> openOnce(token)).subscribeOn(Schedulers.boundedElastic());
+        }
+
+        private synchronized Repository openOnce(String token) throws IOException, GitAPIException {
+            if (repository == null) {
+                repository = openOrClone(token);
+            }
+            return repository;
+        }
+
+        /**
+         * A fetch that starts no earlier than {@code notBefore}: the running one if it qualifies, otherwise the
+         * one queued behind it (queued now if there is none). The fetch runs whether or not the caller stays
+         * subscribed, and a failed one is not joined by later reads; they start another.
+         */
+        private Mono<Void> fetchStartedAfter(long notBefore, String token) {
+            Fetch start;
+            synchronized (this) {
+                if (running != null && running.startedAt - notBefore >= 0) {
+                    return running.done.asMono();
+                }
+                if (running != null) {
+                    if (queued == null) {
+                        queued = new Fetch(token);
+                    }
+                    // starts once the running fetch ends, so after notBefore
+                    return queued.done.asMono();
+                }
+                start = running = new Fetch(token);
+                start.startedAt = System.nanoTime();
+            }
+            run(start);
+            return start.done.asMono();
+        }
+
+        private void run(Fetch fetch) {
+            Mono.fromRunnable(() -> fetch(fetch.startedAt, fetch.token))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribe(null, e -> {
+                        log.warn("⚠️ [Mirror] fetch of {} failed: {}", remoteUrl, e.getMessage());
+                        finished(fetch, e);
+                    }, () -> finished(fetch, null));
+        }
+
+        /**
+         * Starts the queued fetch before releasing the waiters, so none of them joins a fetch that has ended.
+         */
+        private void finished(Fetch fetch, Throwable error) {
+            Fetch next;
+            synchronized (this) {
+                next = running = queued;
+                queued = null;
+                if (next != null) {
+                    next.startedAt = System.nanoTime();
+                }
+            }
+            if (next != null) {
+                run(next);
+            }
+            if (error != null) {
+                fetch.done.tryEmitError(error);
+            } else {
+                fetch.done.tryEmitEmpty();
+            }
+        }
+
+        private void fetch(long startedAt, String token) {
+            long start = System.nanoTime();
+            // Git#wrap does not close the repository
+            try (Git git = Git.wrap(repository)) {
+                git.fetch()
+                        .setRemote(remoteUrl)
+                        .setRefSpecs(ALL_BRANCHES)
+                        .setRemoveDeletedRefs(true)
+                        .setCredentialsProvider(credentials(token))
+                        .call();
+            } catch (GitAPIException e) {
+                throw new CommonRuntimeException("Failed to fetch " + remoteUrl + ": " + e.getMessage());
+            }
+            lastFetch = startedAt;
+            synchronized (this) {
+                // a write that landed after this fetch was queued keeps the mirror stale
+                if (staleSince != 0 && startedAt - staleSince >= 0) {
+                    staleSince = 0;
+                }
+            }
+            log.debug("🔄 [Mirror] fetched {} in {}ms", remoteUrl, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+
+        private Repository openOrClone(String token) throws IOException, GitAPIException {
+            if (Files.exists(directory.resolve("HEAD"))) {
+                // reopened from disk: lastFetch stays 0, so the first read waits for a fetch
+                return new FileRepositoryBuilder().setGitDir(directory.toFile()).setMustExist(true).build();
+            }
+            log.info("📥 [Mirror] cloning {} into {}", remoteUrl, directory);
+            Files.createDirectories(directory.getParent());
+            long startedAt = System.nanoTime();
+            try (Git git = Git.cloneRepository()
+                    .setURI(remoteUrl)
+                    .setBare(true)
+                    .setCloneAllBranches(true)
+                    .setDirectory(directory.toFile())
+                    .setCredentialsProvider(credentials(token))
+                    .call()) {
+                lastFetch = startedAt;
+                Repository cloned = git.getRepository();
+                // keep the repository open after Git#close
+                cloned.incrementOpen();
+                return cloned;
+            } catch (GitAPIException e) {
+                throw new CommonRuntimeException("Failed to mirror " + remoteUrl + ": " + e.getMessage());
+            }
+        }
+
+        void close() {
+            if (repository != null) {
+                repository.close();
+            }
+        }
+    }
+
+    /**
+     * One fetch of a mirror and its completion; {@code startedAt} ({@link System#nanoTime()}) is set, under the
+     * mirror's lock, when it leaves the queue.
+     */
+    private static final class Fetch {
+        private final String token;
+        private final Sinks.Empty<Void> done = Sinks.empty();
+        private long startedAt;
+
+        private Fetch(String token) {
+            this.token = token;
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package ir.msob.manak.rms.scm.scmprovider.local;
+
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+import ir.msob.manak.domain.model.rms.dto.*;
+import ir.msob.manak.rms.scm.scmprovider.ScmProviderService;
+import ir.msob.manak.rms.scm.scmprovider.ScmProviderType;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ScmProviderService for {@code type: local}: reads are served from a bare JGit mirror kept by
+ * {@link GitMirrorManager}, without a network round trip per call.
+ * <p>
+ * {@code ScmContext.repository} is the clone URL (or local path) of the upstream repository and
+ * {@code ScmContext.authToken} its HTTPS password/token. The mirror is read-only: branch, patch,
+ * pull-request and pipeline operations belong to the upstream provider and are rejected.
+ */
+@Service
+@ScmProviderType(LocalProviderService.TYPE)
+@Slf4j
+public class LocalProviderService implements ScmProviderService {
+
+    public static final String TYPE = "local";
+    private static final int ARCHIVE_CHUNK_SIZE = 64 * 1024;
+    private static final int STREAM_CHUNK_SIZE = 64 * 1024;
+
+    private final GitMirrorManager mirrorManager;
+
+    public LocalProviderService(GitMirrorManager mirrorManager) {
+        this.mirrorManager = mirrorManager;
+    }
+
+    // -----------------------
+    // Repository Info
+    // -----------------------
+    @Override
+    public Mono<Boolean> validateAccess(ScmContext context) {
+        log.info("🔐 [Local] validateAccess repo={}", context.getRepository());
+        return Mono.fromCallable(() -> {
+                    Git.lsRemoteRepository()
+                            .setRemote(context.getRepository())
+                            .setHeads(true)
+                            .setCredentialsProvider(mirrorManager.credentials(context.getAuthToken()))
+                            .call();
+                    return true;
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    log.warn("❌ [Local] validateAccess failed for {}: {}", context.getRepository(), e.getMessage());
+                    return Mono.just(false);
+                });
+    }
+
+    @Override
+    public Mono<String> resolveCommitSha(ScmContext ctx, BranchRef branch) {
+        return mirrorManager.open(ctx.getRepository(), ctx.getAuthToken())
+                .map(repository -> resolve(repository, branch.getName()).name());
+    }
+
+    @Override
+    public Flux<BranchRef> listBranches(ScmContext ctx) {
+        return mirrorManager.open(ctx.getRepository(), ctx.getAuthToken())
+                .flatMapIterable(repository -> {
+                    try {
+                        return repository.getRefDatabase().getRefsByPrefix(Constants.R_HEADS);
+                    } catch (IOException e) {
+                        throw new CommonRuntimeException("Failed to list branches of " + ctx.getRepository() + ": " + e.getMessage());
+                    }
+                })
+                .map(ref -> new BranchRef(Repository.shortenRefName(ref.getName()), ref.getObjectId().name()));
+    }
+
+    // -----------------------
+    // File Operations
+    // -----------------------
+    @Override
+    public Mono<FileContent> readFile(ScmContext ctx, BranchRef branch, String filePath) {
+        log.info("📄 [Local] readFile repo={}, branch={}, path={}", ctx.getRepository(), branch.getName(), filePath);
+        String path = filePath.startsWith("/") ? filePath.substring(1) : filePath;
+
+        return mirrorManager.open(ctx.getRepository(), ctx.getAuthToken())
+                .map(repository -> {
+                    try (RevWalk walk = new RevWalk(repository)) {
+                        RevCommit commit = walk.parseCommit(resolve(repository, branch.getName()));
+                        try (TreeWalk treeWalk = TreeWalk.forPath(repository, path, commit.getTree())) {
+                            if (treeWalk == null) {
+                                throw new CommonRuntimeException("File not found: " + filePath);
+                            }
+                            byte[] bytes = repository.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB).getBytes();
+                            return FileContent.builder()
+                                    .path(path)
+                                    .content(new String(bytes, StandardCharsets.UTF_8))
+                                    .build();
+                        }
+                    } catch (IOException e) {
+                        throw new CommonRuntimeException("Failed to read " + filePath + ": " + e.getMessage());
+                    }
+                })
+                .doOnError(e -> log.error("❌ [Local] readFile error for {}: {}", filePath, e.getMessage()));
+    }
+
+    @Override
+    public Flux<DataBuffer> streamFile(ScmContext ctx, BranchRef branch, String filePath) {
+        log.info("📤 [Local] streamFile repo={}, branch={}, path={}", ctx.getRepository(), branch.getName(), filePath);
+        String path = filePath.startsWith("/") ? filePath.substring(1) : filePath;
+
+        return mirrorManager.open(ctx.getRepository(), ctx.getAuthToken())
+                .map(repository -> {
+                    try (RevWalk walk = new RevWalk(repository)) {
+                        RevCommit commit = walk.parseCommit(resolve(repository, branch.getName()));
+                        try (TreeWalk treeWalk = TreeWalk.forPath(repository, path, commit.getTree())) {
+                            if (treeWalk == null) {
+                                throw new CommonRuntimeException("File not found: " + filePath);
+                            }
+                            return repository.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB);
+                        }
+                    } catch (IOException e) {
+                        throw new CommonRuntimeException("Failed to read " + filePath + ": " + e.getMessage());
+                    }
+                })
+                // large blobs are inflated from the pack as they are read
+                .flatMapMany(loader -> DataBufferUtils.readInputStream(loader::openStream, DefaultDataBufferFactory.sharedInstance, STREAM_CHUNK_SIZE)
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .doOnError(e -> log.error("❌ [Local] streamFile error for {}: {}", filePath, e.getMessage()));
+    }
+
+    /**
+     * Read from the object header; the blob itself is not inflated.
+     */
+    @Override
+    public Mono<Long> fileSize(ScmContext ctx, BranchRef branch, String filePath) {
+        String path = filePath.startsWith("/") ? filePath.substring(1) : filePath;
+
+        return mirrorManager.open(ctx.getRepository(), ctx.getAuthToken())
+                .mapNotNull(repository -> {
+                    try (RevWalk walk = new RevWalk(repository)) {
+                        RevCommit commit = walk.parseCommit(resolve(repository, branch.getName()));
+                        try (TreeWalk treeWalk = TreeWalk.forPath(repository, path, commit.getTree())) {
+                            return treeWalk == null ? null : walk.getObjectReader().getObjectSize(treeWalk.getObjectId(0), Constants.OBJ_BLOB);
+                        }
+                    } catch (IOException e) {
+                        throw new CommonRuntimeException("Failed to read " + filePath + ": " + e.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * One tree walk over the requested paths; blobs come from the local object store.
+     */
+    @Override
+    public Flux<FileContent> readFiles(ScmContext ctx, BranchRef branch, List<String> filePaths) {
+        log.info("📚 [Local] readFiles repo={}, branch={}, files={}", ctx.getRepository(), branch.getName(), filePaths.size());
+        List<String> paths = filePaths.stream()
+                .map(path -> path.startsWith("/") ? path.substring(1) : path)
+                .filter(path -> !path.isEmpty())
+                .distinct()
+                .toList();
+        if (paths.isEmpty()) {
+            return Flux.empty();
+        }
+
+        return mirrorManager.open(ctx.getRepository(), ctx.getAuthToken())
+                .flatMapIterable(repository -> {
+                    List<FileContent> files = new ArrayList<>();
+                    try (RevWalk walk = new RevWalk(repository);
+                         TreeWalk treeWalk = new TreeWalk(repository)) {
+                        treeWalk.addTree(walk.parseCommit(resolve(repository, branch.getName())).getTree());
+                        treeWalk.setRecursive(true);
+                        treeWalk.setFilter(PathFilterGroup.createFromStrings(paths));
+                        Set<String> requested = new HashSet<>(paths);
+                        while (treeWalk.next()) {
+                            // the filter also lets through files below a requested directory
+                            if (requested.contains(treeWalk.getPathString()) && treeWalk.getFileMode(0) != FileMode.GITLINK) {
+                                byte[] bytes = repository.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB).getBytes();
+                                files.add(FileContent.builder()
+                                        .path(treeWalk.getPathString())
+                                        .content(new String(bytes, StandardCharsets.UTF_8))
+                                        .build());
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new CommonRuntimeException("Failed to read files of " + ctx.getRepository() + ": " + e.getMessage());
+                    }
+                    return files;
+                })
+                .doOnError(e -> log.error("❌ [Local] readFiles error for {}: {}", ctx.getRepository(), e.getMessage()));
+    }
+
+    @Override
+    public Flux<String> listFiles(ScmContext ctx, BranchRef branch) {
+        return mirrorManager.open(ctx.getRepository(), ctx.getAuthToken())
+                .flatMapIterable(repository -> {
+                    List<String> paths = new ArrayList<>();
+                    try (RevWalk walk = new RevWalk(repository);
+                         TreeWalk treeWalk = new TreeWalk(repository)) {
+                        treeWalk.addTree(walk.parseCommit(resolve(repository, branch.getName())).getTree());
+                        treeWalk.setRecursive(true);
+                        while (treeWalk.next()) {
+                            if (treeWalk.getFileMode(0) != FileMode.GITLINK) {
+                                paths.add(treeWalk.getPathString());
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new CommonRuntimeException("Failed to list files of " + ctx.getRepository() + ": " + e.getMessage());
+                    }
+                    return paths;
+                });
+    }
+
+    /**
+     * Streams a zip of the branch's tree, laid out like a GitHub zipball ({@code <name>-<sha>/...}).
+     */
+    @Override
+    public Flux<DataBuffer> downloadArchive(ScmContext ctx, BranchRef branch) {
+        log.info("📦 [Local] downloadArchive repo={}, branch={}", ctx.getRepository(), branch.getName());
+
+        return mirrorManager.open(ctx.getRepository(), ctx.getAuthToken())
+                .flatMapMany(repository -> DataBufferUtils.outputStreamPublisher(out -> {
+                    try (RevWalk walk = new RevWalk(repository);
+                         ZipOutputStream zip = new ZipOutputStream(out)) {
+                        RevCommit commit = walk.parseCommit(resolve(repository, branch.getName()));
+                        String prefix = archivePrefix(ctx.getRepository(), commit);
+                        try (TreeWalk treeWalk = new TreeWalk(repository)) {
+                            treeWalk.addTree(commit.getTree());
+                            treeWalk.setRecursive(true);
+                            while (treeWalk.next()) {
+                                if (treeWalk.getFileMode(0) == FileMode.GITLINK) {
+                                    // submodules are not part of the archive
+                                    continue;
+                                }
+                                zip.putNextEntry(new ZipEntry(prefix + treeWalk.getPathString()));
+                                repository.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB).copyTo(zip);
+                                zip.closeEntry();
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new CommonRuntimeException("Failed to archive " + ctx.getRepository() + ": " + e.getMessage());
+                    }
+                }, DefaultDataBufferFactory.sharedInstance, task -> Schedulers.boundedElastic().schedule(task), ARCHIVE_CHUNK_SIZE))
+                .doOnError(e -> log.error("❌ [Local] downloadArchive failed: {}", e.getMessage()));
+    }
+
+    // -----------------------
+    // Upstream-only operations
+    // -----------------------
+    @Override
+    public Mono<BranchRef> createBranch(ScmContext ctx, BranchRef baseBranch, String newBranchName) {
+        return unsupported("createBranch");
+    }
+
+    @Override
+    public Mono<ScmResult> deleteBranch(ScmContext ctx, BranchRef branch) {
+        return unsupported("deleteBranch");
+    }
+
+    @Override
+    public Mono<ScmResult> applyPatch(ScmContext ctx, BranchRef branch, Patch patch, String commitMessage) {
+        return unsupported("applyPatch");
+    }
+
+    @Override
+    public Mono<PullRequestInfo> createPullRequest(ScmContext ctx, BranchRef sourceBranch, BranchRef targetBranch, String title, String description) {
+        return unsupported("createPullRequest");
+    }
+
+    @Override
+    public Mono<MergeResult> mergePullRequest(ScmContext ctx, String pullRequestId) {
+        return unsupported("mergePullRequest");
+    }
+
+    @Override
+    public Mono<ScmResult> closePullRequest(ScmContext ctx, String pullRequestId) {
+        return unsupported("closePullRequest");
+    }
+
+    @Override
+    public Mono<PipelineResult> triggerPipeline(ScmContext ctx, PipelineSpec spec) {
+        return unsupported("triggerPipeline");
+    }
+
+    private static <T> Mono<T> unsupported(String operation) {
+        return Mono.error(new CommonRuntimeException("Operation " + operation + " is not supported by the local mirror provider"));
+    }
+
+    private static ObjectId resolve(Repository repository, String branch) {
+        try {
+            Ref ref = repository.exactRef(Constants.R_HEADS + branch);
+            ObjectId id = ref != null ? ref.getObjectId() : repository.resolve(branch);
+            if (id == null) {
+                throw new CommonRuntimeException("Branch not found: " + branch);
+            }
+            return id;
+        } catch (IOException e) {
+            throw new CommonRuntimeException("Failed to resolve " + branch + ": " + e.getMessage());
+        }
+    }
+
+    private static String archivePrefix(String repository, RevCommit commit) {
+        String trimmed = repository.endsWith(".git") ? repository.substring(0, repository.length() - 4) : repository;
+        String name = trimmed.substring(trimmed.lastIndexOf('/') + 1);
+        return name + "-" + commit.abbreviate(7).name() + "/";
+    }
+}
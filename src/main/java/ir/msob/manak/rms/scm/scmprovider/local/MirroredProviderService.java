@@ -0,0 +1,168 @@
+package ir.msob.manak.rms.scm.scmprovider.local;
+
+import ir.msob.manak.domain.model.rms.dto.*;
+import ir.msob.manak.rms.scm.ScmProperties;
+import ir.msob.manak.rms.scm.scmprovider.ReadFreshness;
+import ir.msob.manak.rms.scm.scmprovider.ScmProviderService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Hybrid provider for one specification: reads come from a local bare mirror, writes go to the remote.
+ * <p>
+ * Reads sync the mirror once it is older than {@code max-staleness} (or the tighter bound set through
+ * {@link ReadFreshness}). Every successful write marks the mirror stale and fetches it in the background,
+ * so the next read sees it. Created per specification by {@code ScmProviderRegistry}.
+ */
+public class MirroredProviderService implements ScmProviderService {
+
+    private static final Logger log = LoggerFactory.getLogger(MirroredProviderService.class);
+
+    private final ScmProviderService remote;
+    private final ScmProviderService mirror;
+    private final GitMirrorManager mirrorManager;
+    private final ScmProperties.MirrorSpecification specification;
+
+    public MirroredProviderService(ScmProviderService remote,
+                                   ScmProviderService mirror,
+                                   GitMirrorManager mirrorManager,
+                                   ScmProperties.MirrorSpecification specification) {
+        this.remote = remote;
+        this.mirror = mirror;
+        this.mirrorManager = mirrorManager;
+        this.specification = specification;
+    }
+
+    // -----------------------
+    // Reads: local mirror
+    // -----------------------
+    @Override
+    public Mono<Boolean> validateAccess(ScmContext context) {
+        return remote.validateAccess(context);
+    }
+
+    @Override
+    public Mono<String> resolveCommitSha(ScmContext ctx, BranchRef branch) {
+        return withFallback(mirror.resolveCommitSha(mirrorContext(ctx), branch), "resolveCommitSha", ctx,
+                () -> remote.resolveCommitSha(ctx, branch));
+    }
+
+    @Override
+    public Flux<BranchRef> listBranches(ScmContext ctx) {
+        return withFallback(mirror.listBranches(mirrorContext(ctx)).collectList(), "listBranches", ctx,
+                () -> remote.listBranches(ctx).collectList())
+                .flatMapIterable(branches -> branches);
+    }
+
+    @Override
+    public Mono<FileContent> readFile(ScmContext ctx, BranchRef branch, String filePath) {
+        return withFallback(mirror.readFile(mirrorContext(ctx), branch, filePath), "readFile", ctx,
+                () -> remote.readFile(ctx, branch, filePath));
+    }
+
+    /**
+     * Served from the mirror without fallback, like archives.
+     */
+    @Override
+    public Flux<DataBuffer> streamFile(ScmContext ctx, BranchRef branch, String filePath) {
+        return mirror.streamFile(mirrorContext(ctx), branch, filePath)
+                .contextWrite(context -> ReadFreshness.atMost(context, specification.getMaxStaleness()));
+    }
+
+    @Override
+    public Mono<Long> fileSize(ScmContext ctx, BranchRef branch, String filePath) {
+        return withFallback(mirror.fileSize(mirrorContext(ctx), branch, filePath), "fileSize", ctx,
+                () -> remote.fileSize(ctx, branch, filePath));
+    }
+
+    @Override
+    public Flux<FileContent> readFiles(ScmContext ctx, BranchRef branch, List<String> filePaths) {
+        return withFallback(mirror.readFiles(mirrorContext(ctx), branch, filePaths).collectList(), "readFiles", ctx,
+                () -> remote.readFiles(ctx, branch, filePaths).collectList())
+                .flatMapIterable(files -> files);
+    }
+
+    @Override
+    public Flux<String> listFiles(ScmContext ctx, BranchRef branch) {
+        return withFallback(mirror.listFiles(mirrorContext(ctx), branch).collectList(), "listFiles", ctx,
+                () -> remote.listFiles(ctx, branch).collectList())
+                .flatMapIterable(paths -> paths);
+    }
+
+    /**
+     * Served from the mirror without fallback: once bytes are streamed a second source cannot take over.
+     */
+    @Override
+    public Flux<DataBuffer> downloadArchive(ScmContext ctx, BranchRef branch) {
+        return mirror.downloadArchive(mirrorContext(ctx), branch)
+                .contextWrite(context -> ReadFreshness.atMost(context, specification.getMaxStaleness()));
+    }
+
+    // -----------------------
+    // Writes: remote, then refresh the mirror
+    // -----------------------
+    @Override
+    public Mono<BranchRef> createBranch(ScmContext ctx, BranchRef baseBranch, String newBranchName) {
+        return remote.createBranch(ctx, baseBranch, newBranchName).doOnSuccess(r -> refresh(ctx));
+    }
+
+    @Override
+    public Mono<ScmResult> deleteBranch(ScmContext ctx, BranchRef branch) {
+        return remote.deleteBranch(ctx, branch).doOnSuccess(r -> refresh(ctx));
+    }
+
+    @Override
+    public Mono<ScmResult> applyPatch(ScmContext ctx, BranchRef branch, Patch patch, String commitMessage) {
+        return remote.applyPatch(ctx, branch, patch, commitMessage).doOnSuccess(r -> refresh(ctx));
+    }
+
+    @Override
+    public Mono<PullRequestInfo> createPullRequest(ScmContext ctx, BranchRef sourceBranch, BranchRef targetBranch, String title, String description) {
+        return remote.createPullRequest(ctx, sourceBranch, targetBranch, title, description);
+    }
+
+    @Override
+    public Mono<MergeResult> mergePullRequest(ScmContext ctx, String pullRequestId) {
+        return remote.mergePullRequest(ctx, pullRequestId).doOnSuccess(r -> refresh(ctx));
+    }
+
+    @Override
+    public Mono<ScmResult> closePullRequest(ScmContext ctx, String pullRequestId) {
+        return remote.closePullRequest(ctx, pullRequestId);
+    }
+
+    @Override
+    public Mono<PipelineResult> triggerPipeline(ScmContext ctx, PipelineSpec spec) {
+        return remote.triggerPipeline(ctx, spec);
+    }
+
+    private <T> Mono<T> withFallback(Mono<T> fromMirror, String operation, ScmContext ctx,
+                                     Supplier<Mono<T>> fromRemote) {
+        Mono<T> bounded = fromMirror
+                .contextWrite(context -> ReadFreshness.atMost(context, specification.getMaxStaleness()));
+        if (!specification.isFallbackToRemote()) {
+            return bounded;
+        }
+        return bounded.onErrorResume(e -> {
+            log.warn("⚠️ [Mirror] {} for {} falls back to the remote: {}", operation, ctx.getRepository(), e.getMessage());
+            return fromRemote.get();
+        });
+    }
+
+    private void refresh(ScmContext ctx) {
+        mirrorManager.refresh(specification.cloneUrlFor(ctx.getRepository()), ctx.getAuthToken());
+    }
+
+    private ScmContext mirrorContext(ScmContext ctx) {
+        return ScmContext.builder()
+                .repository(specification.cloneUrlFor(ctx.getRepository()))
+                .authToken(ctx.getAuthToken())
+                .build();
+    }
+}
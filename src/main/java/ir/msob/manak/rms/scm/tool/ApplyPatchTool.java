@@ -5,7 +5,7 @@ import ir.msob.manak.domain.model.common.model.ParameterDescriptor;
 import ir.msob.manak.domain.model.common.model.RetryPolicy;
 import ir.msob.manak.domain.model.common.model.TimeoutPolicy;
 import ir.msob.manak.domain.model.rms.dto.Patch;
-import ir.msob.manak.domain.model.toolhub.ToolExecutor;
+import ir.msob.manak.domain.model.rms.dto.ScmResult;
 import ir.msob.manak.domain.model.toolhub.dto.InvokeRequest;
 import ir.msob.manak.domain.model.toolhub.dto.InvokeResponse;
 import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.ResponseDescriptor;
@@ -13,16 +13,17 @@ import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.ResponseSt
 import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.ToolDescriptor;
 import ir.msob.manak.domain.model.util.VariableUtils;
 import ir.msob.manak.domain.service.toolhub.util.ToolExecutorUtil;
+import ir.msob.manak.rms.scm.patch.Base64Content;
 import ir.msob.manak.rms.scm.scmprovider.ScmOperationService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
 import java.util.Arrays;
-import java.util.Base64;
 import java.util.List;
 import java.util.Map;
 
@@ -30,14 +31,22 @@ import static ir.msob.manak.domain.model.rms.RmsConstants.*;
 
 @Service
 @RequiredArgsConstructor
-public class ApplyPatchTool implements ToolExecutor {
+public class ApplyPatchTool implements DescribedToolExecutor {
 
     private static final Logger log = LoggerFactory.getLogger(ApplyPatchTool.class);
+    private static final String ENCODING_KEY = "encoding";
 
     private final ScmOperationService scmOperationService;
+    private final ToolExecutionPolicy toolExecutionPolicy;
+    private final ObjectProvider<ToolDescriptorRegistry> toolDescriptorRegistry;
 
     @Override
     public ToolDescriptor getToolDescriptor() {
+        return toolDescriptorRegistry.getObject().descriptorOf(this);
+    }
+
+    @Override
+    public ToolDescriptor buildToolDescriptor() {
         // ==== Parameters ====
         ParameterDescriptor repositoryIdParam = ParameterDescriptor.builder()
                 .type(ParameterDescriptor.ToolParameterType.STRING)
@@ -57,15 +66,24 @@ public class ApplyPatchTool implements ToolExecutor {
 
         ParameterDescriptor patchParam = ParameterDescriptor.builder()
                 .type(ParameterDescriptor.ToolParameterType.STRING)
-                .description("Patch content, either base64 encoded or raw diff text")
+                .description("Patch content, either base64 encoded or raw text: a unified diff (git diff output) or a JSON array of {path, content, encoding?} entries")
                 .required(true)
                 .examples(Arrays.asList(
-                        "...diff content...",
+                        "diff --git a/README.md b/README.md\n--- a/README.md\n+++ b/README.md\n@@ -1 +1 @@\n-# Old\n+# New\n",
                         "ZGVmYXVsdCBwYXRjaCBjb250ZW50Cg==" // base64 example
                 ))
                 .nullable(false)
                 .build();
 
+        ParameterDescriptor encodingParam = ParameterDescriptor.builder()
+                .type(ParameterDescriptor.ToolParameterType.STRING)
+                .description("How the patch is encoded: auto (base64 only when it is padded base64), plain or base64 (default: auto)")
+                .required(false)
+                .defaultValue("auto")
+                .examples(List.of("auto", "plain", "base64"))
+                .nullable(true)
+                .build();
+
         ParameterDescriptor commitMessageParam = ParameterDescriptor.builder()
                 .type(ParameterDescriptor.ToolParameterType.STRING)
                 .description("Commit message for the applied patch")
@@ -120,6 +138,7 @@ public class ApplyPatchTool implements ToolExecutor {
                 .parameter("repositoryId", repositoryIdParam)
                 .parameter("branch", branchParam)
                 .parameter("patch", patchParam)
+                .parameter(ENCODING_KEY, encodingParam)
                 .parameter("commitMessage", commitMessageParam)
                 .response(ResponseDescriptor.builder()
                         .responseSchema(responseSchema)
@@ -177,23 +196,18 @@ public class ApplyPatchTool implements ToolExecutor {
 
         log.info("[{}] Applying patch: repo={}, branch={}", toolId, repositoryId, branch);
 
-        // try base64 decode if looks encoded
-        String patchContent = patchRaw;
-        try {
-            if (patchRaw != null && Base64.getDecoder().decode(patchRaw).length > 0) {
-                // if decodable and when re-encoded equals original length threshold, accept it
-                patchContent = new String(Base64.getDecoder().decode(patchRaw));
-            }
-        } catch (IllegalArgumentException ignored) {
-            // keep original
-        }
-
-        // build Patch DTO - here we assume Patch has constructor from String or factory
-        Patch patch = Patch.builder()
-                .diff(patchContent)
-                .build(); // <- replace with your actual constructor/factory
-
-        return scmOperationService.applyPatch(repositoryId, branch, patch, commitMessage, user)
+        Mono<ScmResult> applied = Mono.fromCallable(() -> {
+                    Base64Content.Encoding encoding = Base64Content.Encoding.of(VariableUtils.safeString(request.getParameters().get(ENCODING_KEY)));
+                    String patchContent = patchRaw != null && encoding.isBase64(patchRaw)
+                            ? Base64Content.decodeToString(patchRaw)
+                            : patchRaw;
+                    return Patch.builder()
+                            .diff(patchContent)
+                            .build();
+                })
+                .flatMap(patch -> scmOperationService.applyPatch(repositoryId, branch, patch, commitMessage, user));
+
+        return toolExecutionPolicy.apply(this, false, applied)
                 .map(r -> InvokeResponse.builder()
                         .requestId(requestId)
                         .toolId(toolId)
@@ -2,7 +2,6 @@ package ir.msob.manak.rms.scm.tool;
 
 import ir.msob.manak.core.model.jima.security.User;
 import ir.msob.manak.domain.model.common.model.ParameterDescriptor;
-import ir.msob.manak.domain.model.toolhub.ToolExecutor;
 import ir.msob.manak.domain.model.toolhub.dto.InvokeRequest;
 import ir.msob.manak.domain.model.toolhub.dto.InvokeResponse;
 import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.ToolDescriptor;
@@ -12,6 +11,7 @@ import ir.msob.manak.rms.scm.scmprovider.ScmOperationService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
@@ -23,14 +23,21 @@ import static ir.msob.manak.domain.model.rms.RmsConstants.*;
 
 @Service
 @RequiredArgsConstructor
-public class CreateBranchTool implements ToolExecutor {
+public class CreateBranchTool implements DescribedToolExecutor {
 
     private static final Logger log = LoggerFactory.getLogger(CreateBranchTool.class);
 
     private final ScmOperationService scmOperationService;
+    private final ToolExecutionPolicy toolExecutionPolicy;
+    private final ObjectProvider<ToolDescriptorRegistry> toolDescriptorRegistry;
 
     @Override
     public ToolDescriptor getToolDescriptor() {
+        return toolDescriptorRegistry.getObject().descriptorOf(this);
+    }
+
+    @Override
+    public ToolDescriptor buildToolDescriptor() {
         // ==== Parameters ====
         ParameterDescriptor repositoryIdParam = ParameterDescriptor.builder()
                 .type(ParameterDescriptor.ToolParameterType.STRING)
@@ -135,7 +142,7 @@ public class CreateBranchTool implements ToolExecutor {
 
         log.info("[{}] Creating branch: repo={}, base={}, new={}", toolId, repositoryId, baseBranch, newBranchName);
 
-        return scmOperationService.createBranch(repositoryId, baseBranch, newBranchName, user)
+        return toolExecutionPolicy.apply(this, false, scmOperationService.createBranch(repositoryId, baseBranch, newBranchName, user))
                 .map(b -> InvokeResponse.builder()
                         .requestId(requestId)
                         .toolId(toolId)
@@ -0,0 +1,18 @@
+package ir.msob.manak.rms.scm.tool;
+
+import ir.msob.manak.domain.model.toolhub.ToolExecutor;
+import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.ToolDescriptor;
+
+/**
+ * A tool of this service whose descriptor is built once, by {@link ToolDescriptorRegistry}.
+ * <p>
+ * {@link #getToolDescriptor()} returns the registry's cached descriptor; the registry builds it at startup
+ * through {@link #buildToolDescriptor()}, so executors depend on the registry only lazily.
+ */
+public interface DescribedToolExecutor extends ToolExecutor {
+
+    /**
+     * Builds the descriptor; called once per tool by the registry.
+     */
+    ToolDescriptor buildToolDescriptor();
+}
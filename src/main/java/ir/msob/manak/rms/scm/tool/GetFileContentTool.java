@@ -4,7 +4,6 @@ import ir.msob.manak.core.model.jima.security.User;
 import ir.msob.manak.domain.model.common.model.ParameterDescriptor;
 import ir.msob.manak.domain.model.common.model.RetryPolicy;
 import ir.msob.manak.domain.model.common.model.TimeoutPolicy;
-import ir.msob.manak.domain.model.toolhub.ToolExecutor;
 import ir.msob.manak.domain.model.toolhub.dto.InvokeRequest;
 import ir.msob.manak.domain.model.toolhub.dto.InvokeResponse;
 import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.Example;
@@ -13,16 +12,23 @@ import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.ResponseSt
 import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.ToolDescriptor;
 import ir.msob.manak.domain.model.util.VariableUtils;
 import ir.msob.manak.domain.service.toolhub.util.ToolExecutorUtil;
+import ir.msob.manak.rms.repository.RepositoryRestResource;
+import ir.msob.manak.rms.scm.ScmProperties;
 import ir.msob.manak.rms.scm.scmprovider.ScmOperationService;
 import ir.msob.manak.rms.scm.scmprovider.ScmProviderRegistry;
+import jakarta.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.buffer.DataBufferLimitException;
 import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -34,19 +40,31 @@ import static ir.msob.manak.domain.model.rms.RmsConstants.*;
  * This tool retrieves a file’s metadata and decoded content via {@link ScmProviderRegistry},
  * returning results in a consistent {@link InvokeResponse}.
  * <p>
+ * Files larger than {@code rms.scm.file-stream.max-inline-size} are not inlined: the result carries a
+ * {@code streamUrl} on the repository REST resource that serves the raw bytes instead.
+ * <p>
  * All exceptions are caught and transformed into structured {@link InvokeResponse.ErrorInfo} responses.
  */
 @Service
 @RequiredArgsConstructor
-public class GetFileContentTool implements ToolExecutor {
+public class GetFileContentTool implements DescribedToolExecutor {
 
     private static final Logger log = LoggerFactory.getLogger(GetFileContentTool.class);
+    private static final String FRESH_KEY = "fresh";
 
     private final ScmOperationService scmOperationService;
+    private final ToolExecutionPolicy toolExecutionPolicy;
+    private final ObjectProvider<ToolDescriptorRegistry> toolDescriptorRegistry;
+    private final ScmProperties scmProperties;
 
 
     @Override
     public ToolDescriptor getToolDescriptor() {
+        return toolDescriptorRegistry.getObject().descriptorOf(this);
+    }
+
+    @Override
+    public ToolDescriptor buildToolDescriptor() {
         // ==== Parameters ====
         ParameterDescriptor repositoryIdParam = ParameterDescriptor.builder()
                 .type(ParameterDescriptor.ToolParameterType.STRING)
@@ -70,6 +88,14 @@ public class GetFileContentTool implements ToolExecutor {
                 .example("main")
                 .build();
 
+        ParameterDescriptor freshParam = ParameterDescriptor.builder()
+                .type(ParameterDescriptor.ToolParameterType.BOOLEAN)
+                .description("Read the remote's current state instead of a possibly stale mirror (default: false)")
+                .required(false)
+                .defaultValue(false)
+                .example(false)
+                .build();
+
         // ==== Response Schema ====
         ParameterDescriptor responseSchema = ParameterDescriptor.builder()
                 .type(ParameterDescriptor.ToolParameterType.OBJECT)
@@ -94,9 +120,15 @@ public class GetFileContentTool implements ToolExecutor {
                         .build())
                 .property("content", ParameterDescriptor.builder()
                         .type(ParameterDescriptor.ToolParameterType.STRING)
-                        .description("File content")
+                        .description("File content; absent when the file is too large to inline")
                         .example("public class MyClass { ... }")
-                        .required(true)
+                        .required(false)
+                        .build())
+                .property("streamUrl", ParameterDescriptor.builder()
+                        .type(ParameterDescriptor.ToolParameterType.STRING)
+                        .description("URL serving the raw file, set instead of content for large files")
+                        .example("/api/v1/repository/repo-001/file?path=data/large.csv&branch=main")
+                        .required(false)
                         .build())
                 .build();
 
@@ -112,6 +144,7 @@ public class GetFileContentTool implements ToolExecutor {
                 .parameter("repositoryId", repositoryIdParam)
                 .parameter("filePath", filePathParam)
                 .parameter("branch", branchParam)
+                .parameter("fresh", freshParam)
                 .response(ResponseDescriptor.builder()
                         .responseSchema(responseSchema)
                         .status(ResponseStatus.builder()
@@ -161,18 +194,41 @@ public class GetFileContentTool implements ToolExecutor {
         String repositoryId = VariableUtils.safeString(request.getParameters().get(REPOSITORY_ID_KEY));
         String filePath = VariableUtils.safeString(request.getParameters().get(FILE_PATH_KEY));
         String branch = Optional.ofNullable(VariableUtils.safeString(request.getParameters().get(BRANCH_KEY))).orElse("main");
+        boolean fresh = Boolean.parseBoolean(VariableUtils.safeString(request.getParameters().get(FRESH_KEY)));
 
-        log.info("🛠️ [{}] Fetching file content: repo={}, path={}, branch={}", toolId, repositoryId, filePath, branch);
+        log.info("🛠️ [{}] Fetching file content: repo={}, path={}, branch={}, fresh={}", toolId, repositoryId, filePath, branch, fresh);
 
-        return scmOperationService.readFile(repositoryId, branch, filePath, user)
-                .map(content -> {
-                    log.info("✅ [{}] Successfully fetched file '{}'", toolId, content.getPath());
-                    return InvokeResponse.builder()
-                            .requestId(requestId)
-                            .toolId(toolId)
-                            .result(content)
-                            .executedAt(Instant.now())
-                            .build();
+        long maxInlineSize = scmProperties.getFileStream().getMaxInlineSize().toBytes();
+        // decide from the size the provider already knows (the tree index) before reading the file at all
+        Mono<InvokeResponse> fetch = scmOperationService.fileSize(repositoryId, branch, filePath, fresh, user)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(knownSize -> {
+                    if (knownSize.isPresent() && knownSize.get() > maxInlineSize) {
+                        log.info("✅ [{}] File '{}' is {} bytes, returning a stream URL", toolId, filePath, knownSize.get());
+                        return Mono.just(streamHandle(request, repositoryId, branch, filePath, knownSize.get()));
+                    }
+                    return scmOperationService.readFile(repositoryId, branch, filePath, fresh, user)
+                            .map(content -> {
+                                // size unknown up front: check what was read
+                                long size = utf8Length(content.getContent());
+                                if (size > maxInlineSize) {
+                                    log.info("✅ [{}] File '{}' is {} bytes, returning a stream URL", toolId, content.getPath(), size);
+                                    return streamHandle(request, repositoryId, branch, filePath, size);
+                                }
+                                log.info("✅ [{}] Successfully fetched file '{}'", toolId, content.getPath());
+                                return InvokeResponse.builder()
+                                        .requestId(requestId)
+                                        .toolId(toolId)
+                                        .result(content)
+                                        .executedAt(Instant.now())
+                                        .build();
+                            });
+                });
+        return toolExecutionPolicy.apply(this, true, fetch)
+                .onErrorResume(DataBufferLimitException.class, e -> {
+                    log.info("✅ [{}] File '{}' exceeds the in-memory limit, returning a stream URL", toolId, filePath);
+                    return Mono.just(streamHandle(request, repositoryId, branch, filePath, null));
                 })
                 .onErrorResume(e -> {
                     log.error("❌ [{}] Error during execution", toolId, e);
@@ -190,4 +246,50 @@ public class GetFileContentTool implements ToolExecutor {
                             .build());
                 });
     }
-}
\ No newline at end of file
+
+    private static InvokeResponse streamHandle(InvokeRequest request, String repositoryId, String branch, String filePath,
+                                               @Nullable Long size) {
+        String streamUrl = UriComponentsBuilder.fromPath(RepositoryRestResource.BASE_URI + "/{id}/file")
+                .queryParam("path", filePath)
+                .queryParam("branch", branch)
+                .buildAndExpand(repositoryId)
+                .encode()
+                .toUriString();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("path", filePath);
+        if (size != null) {
+            result.put("size", size);
+        }
+        result.put("streamUrl", streamUrl);
+        return InvokeResponse.builder()
+                .requestId(request.getRequestId())
+                .toolId(request.getToolId())
+                .result(result)
+                .executedAt(Instant.now())
+                .build();
+    }
+
+    /**
+     * Encoded size without encoding the string.
+     */
+    private static long utf8Length(@Nullable String s) {
+        if (s == null) {
+            return 0;
+        }
+        long length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
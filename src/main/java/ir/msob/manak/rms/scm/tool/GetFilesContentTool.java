@@ -0,0 +1,244 @@
+package ir.msob.manak.rms.scm.tool;
+
+import ir.msob.manak.core.model.jima.security.User;
+import ir.msob.manak.domain.model.common.model.ParameterDescriptor;
+import ir.msob.manak.domain.model.common.model.RetryPolicy;
+import ir.msob.manak.domain.model.common.model.TimeoutPolicy;
+import ir.msob.manak.domain.model.rms.dto.FileContent;
+import ir.msob.manak.domain.model.toolhub.dto.InvokeRequest;
+import ir.msob.manak.domain.model.toolhub.dto.InvokeResponse;
+import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.Example;
+import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.ResponseDescriptor;
+import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.ResponseStatus;
+import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.ToolDescriptor;
+import ir.msob.manak.domain.model.util.VariableUtils;
+import ir.msob.manak.domain.service.toolhub.util.ToolExecutorUtil;
+import ir.msob.manak.rms.scm.scmprovider.ScmOperationService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static ir.msob.manak.domain.model.rms.RmsConstants.*;
+
+/**
+ * Reactive tool for fetching several files of a Git repository in one call.
+ * <p>
+ * Files are selected by an explicit list of paths, a glob, or both, and read at a single commit through
+ * {@link ScmOperationService#readFiles}. Paths that do not exist are reported under {@code missing}
+ * instead of failing the call.
+ * <p>
+ * All exceptions are caught and transformed into structured {@link InvokeResponse.ErrorInfo} responses.
+ */
+@Service
+@RequiredArgsConstructor
+public class GetFilesContentTool implements DescribedToolExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(GetFilesContentTool.class);
+    private static final String FILE_PATHS_KEY = "filePaths";
+    private static final String GLOB_KEY = "glob";
+    private static final String FRESH_KEY = "fresh";
+
+    private final ScmOperationService scmOperationService;
+    private final ToolExecutionPolicy toolExecutionPolicy;
+    private final ObjectProvider<ToolDescriptorRegistry> toolDescriptorRegistry;
+
+
+    @Override
+    public ToolDescriptor getToolDescriptor() {
+        return toolDescriptorRegistry.getObject().descriptorOf(this);
+    }
+
+    @Override
+    public ToolDescriptor buildToolDescriptor() {
+        // ==== Parameters ====
+        ParameterDescriptor repositoryIdParam = ParameterDescriptor.builder()
+                .type(ParameterDescriptor.ToolParameterType.STRING)
+                .description("Repository ID to fetch the files from")
+                .required(true)
+                .example("123456")
+                .build();
+
+        ParameterDescriptor filePathsParam = ParameterDescriptor.builder()
+                .type(ParameterDescriptor.ToolParameterType.ARRAY)
+                .description("File paths inside the repository (a list, or one comma-separated string)")
+                .required(false)
+                .example(List.of("pom.xml", "src/main/java/MyClass.java"))
+                .build();
+
+        ParameterDescriptor globParam = ParameterDescriptor.builder()
+                .type(ParameterDescriptor.ToolParameterType.STRING)
+                .description("Optional glob selecting files by path, e.g. src/**.java (combined with filePaths)")
+                .required(false)
+                .example("src/main/resources/*.yml")
+                .build();
+
+        ParameterDescriptor branchParam = ParameterDescriptor.builder()
+                .type(ParameterDescriptor.ToolParameterType.STRING)
+                .description("Optional branch name (default: main)")
+                .required(false)
+                .defaultValue("main")
+                .example("main")
+                .build();
+
+        ParameterDescriptor freshParam = ParameterDescriptor.builder()
+                .type(ParameterDescriptor.ToolParameterType.BOOLEAN)
+                .description("Read the remote's current state instead of a possibly stale mirror (default: false)")
+                .required(false)
+                .defaultValue(false)
+                .example(false)
+                .build();
+
+        // ==== Response Schema ====
+        ParameterDescriptor responseSchema = ParameterDescriptor.builder()
+                .type(ParameterDescriptor.ToolParameterType.OBJECT)
+                .description("Contents of the selected files")
+                .property("files", ParameterDescriptor.builder()
+                        .type(ParameterDescriptor.ToolParameterType.OBJECT)
+                        .description("File content by path")
+                        .example(Map.of("pom.xml", "<project>...</project>"))
+                        .required(true)
+                        .build())
+                .property("missing", ParameterDescriptor.builder()
+                        .type(ParameterDescriptor.ToolParameterType.ARRAY)
+                        .description("Requested paths that do not exist on the branch")
+                        .example(List.of("src/Old.java"))
+                        .required(true)
+                        .build())
+                .build();
+
+        // ==== ToolDescriptor ====
+        return ToolDescriptor.builder()
+                .category("Repository")
+                .name("GetFilesContent")
+                .displayName("Get Files Content")
+                .description("Fetches the content of several files, selected by path list or glob, from a git repository")
+                .version("1.0.0")
+                .tag("git")
+                .tag("file")
+                .parameter("repositoryId", repositoryIdParam)
+                .parameter(FILE_PATHS_KEY, filePathsParam)
+                .parameter(GLOB_KEY, globParam)
+                .parameter("branch", branchParam)
+                .parameter(FRESH_KEY, freshParam)
+                .response(ResponseDescriptor.builder()
+                        .responseSchema(responseSchema)
+                        .status(ResponseStatus.builder()
+                                .status("SUCCESS")
+                                .description("Files fetched successfully")
+                                .contentType("application/json")
+                                .build())
+                        .status(ResponseStatus.builder()
+                                .status("ERROR")
+                                .description("An error occurred during file fetch")
+                                .contentType("application/json")
+                                .build())
+                        .example(Example.builder()
+                                .title("Fetch several files")
+                                .description("Retrieve a list of files and all YAML resources in one call.")
+                                .input(Map.of(
+                                        "repositoryId", "repo-001",
+                                        FILE_PATHS_KEY, List.of("pom.xml", "src/Old.java"),
+                                        GLOB_KEY, "src/main/resources/*.yml",
+                                        "branch", "main"))
+                                .output(Map.of(
+                                        "files", Map.of(
+                                                "pom.xml", "<project>...</project>",
+                                                "src/main/resources/application.yml", "server: ..."),
+                                        "missing", List.of("src/Old.java")))
+                                .build())
+                        .build())
+                .retryPolicy(RetryPolicy.builder()
+                        .enabled(true)
+                        .maxAttempts(3)
+                        .initialIntervalMs(500)
+                        .multiplier(2.0)
+                        .maxIntervalMs(2000)
+                        .build())
+                .timeoutPolicy(TimeoutPolicy.builder()
+                        .timeoutMs(30000)
+                        .failFast(false)
+                        .gracePeriodMs(1000)
+                        .build())
+                .status(ToolDescriptor.ToolDescriptorStatus.ACTIVE)
+                .build();
+    }
+
+    @Override
+    public Mono<InvokeResponse> execute(InvokeRequest request, User user) {
+        String requestId = request.getRequestId();
+        String toolId = request.getToolId();
+        String repositoryId = VariableUtils.safeString(request.getParameters().get(REPOSITORY_ID_KEY));
+        List<String> filePaths = paths(request.getParameters().get(FILE_PATHS_KEY));
+        String glob = VariableUtils.safeString(request.getParameters().get(GLOB_KEY));
+        String branch = Optional.ofNullable(VariableUtils.safeString(request.getParameters().get(BRANCH_KEY))).orElse("main");
+        boolean fresh = Boolean.parseBoolean(VariableUtils.safeString(request.getParameters().get(FRESH_KEY)));
+
+        log.info("🛠️ [{}] Fetching files: repo={}, paths={}, glob={}, branch={}, fresh={}", toolId, repositoryId, filePaths.size(), glob, branch, fresh);
+
+        return toolExecutionPolicy.apply(this, true, scmOperationService.readFiles(repositoryId, branch, filePaths, glob, fresh, user)
+                        .collectSortedList(Comparator.comparing(FileContent::getPath)))
+                .map(contents -> {
+                    Map<String, String> files = new LinkedHashMap<>();
+                    contents.forEach(content -> files.put(content.getPath(), content.getContent()));
+                    Set<String> read = files.keySet();
+                    List<String> missing = filePaths.stream()
+                            .map(path -> path.startsWith("/") ? path.substring(1) : path)
+                            .filter(path -> !read.contains(path))
+                            .toList();
+                    log.info("✅ [{}] Successfully fetched {} files ({} missing)", toolId, files.size(), missing.size());
+                    return InvokeResponse.builder()
+                            .requestId(requestId)
+                            .toolId(toolId)
+                            .result(Map.of("files", files, "missing", missing))
+                            .executedAt(Instant.now())
+                            .build();
+                })
+                .onErrorResume(e -> {
+                    log.error("❌ [{}] Error during execution", toolId, e);
+                    return Mono.just(InvokeResponse.builder()
+                            .requestId(requestId)
+                            .toolId(toolId)
+                            .error(InvokeResponse.ErrorInfo.builder()
+                                    .code("EXECUTION_ERROR")
+                                    .message(ToolExecutorUtil.buildErrorResponse(request.getToolId(), e))
+                                    .stackTrace(Arrays.toString(e.getStackTrace()))
+                                    .detail("repositoryId", repositoryId)
+                                    .detail("filePaths", String.join(",", filePaths))
+                                    .detail("glob", String.valueOf(glob))
+                                    .build())
+                            .executedAt(Instant.now())
+                            .build());
+                });
+    }
+
+    private static List<String> paths(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return collection.stream()
+                    .map(String::valueOf)
+                    .map(String::trim)
+                    .filter(path -> !path.isEmpty())
+                    .toList();
+        }
+        String raw = VariableUtils.safeString(value);
+        if (raw == null) {
+            return List.of();
+        }
+        return Arrays.stream(raw.split("[,\\n]"))
+                .map(String::trim)
+                .filter(path -> !path.isEmpty())
+                .toList();
+    }
+}
@@ -0,0 +1,164 @@
+package ir.msob.manak.rms.scm.tool;
+
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+import ir.msob.manak.core.model.jima.security.User;
+import ir.msob.manak.domain.model.toolhub.ToolExecutor;
+import ir.msob.manak.domain.model.toolhub.dto.InvokeRequest;
+import ir.msob.manak.domain.model.toolhub.dto.InvokeResponse;
+import ir.msob.manak.domain.model.util.VariableUtils;
+import ir.msob.manak.domain.service.toolhub.util.ToolExecutorUtil;
+import ir.msob.manak.rms.scm.ScmProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static ir.msob.manak.domain.model.rms.RmsConstants.REPOSITORY_ID_KEY;
+
+/**
+ * Runs an ordered list of tool invocations as one batch.
+ * <p>
+ * An item may depend on earlier items (by {@code requestId}); it starts once they have answered and is
+ * skipped with {@code DEPENDENCY_FAILED} when one of them returned an error. Independent items run
+ * concurrently: at most {@code concurrency} per batch, and at most {@code per-repository-concurrency}
+ * against one repository, so a batch of reads does not flood a single provider. Responses are emitted
+ * as they complete, each carrying its {@code requestId}.
+ */
+@Component
+public class ToolBatchInvoker {
+
+    private static final Logger log = LoggerFactory.getLogger(ToolBatchInvoker.class);
+    private static final Sinks.EmitFailureHandler RETRY_CONTENDED = Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1));
+
+    private final ToolDescriptorRegistry toolDescriptorRegistry;
+    private final ScmProperties.ToolBatch properties;
+
+    public ToolBatchInvoker(ToolDescriptorRegistry toolDescriptorRegistry, ScmProperties scmProperties) {
+        this.toolDescriptorRegistry = toolDescriptorRegistry;
+        this.properties = scmProperties.getToolBatch();
+    }
+
+    public Flux<InvokeResponse> invoke(List<BatchItem> items, User user) {
+        if (items == null || items.isEmpty()) {
+            return Flux.empty();
+        }
+        if (items.size() > properties.getMaxItems()) {
+            return Flux.error(new CommonRuntimeException("Batch has " + items.size() + " items, at most "
+                    + properties.getMaxItems() + " are allowed"));
+        }
+        return Flux.defer(() -> {
+            log.info("📦 [ToolBatch] invoking {} tools", items.size());
+            Map<String, Lane> lanes = new HashMap<>();
+            Map<String, Mono<InvokeResponse>> byRequestId = new HashMap<>();
+            List<Mono<InvokeResponse>> responses = new ArrayList<>(items.size());
+            for (BatchItem item : items) {
+                Mono<InvokeResponse> response = plan(item, byRequestId, lanes, user).cache();
+                responses.add(response);
+                if (item.request() != null && item.request().getRequestId() != null) {
+                    byRequestId.putIfAbsent(item.request().getRequestId(), response);
+                }
+            }
+            // dependencies always point at earlier items, which merge subscribes to first
+            return Flux.merge(Flux.fromIterable(responses), properties.getConcurrency())
+                    .doFinally(signal -> lanes.values().forEach(Lane::close));
+        });
+    }
+
+    private Mono<InvokeResponse> plan(BatchItem item, Map<String, Mono<InvokeResponse>> byRequestId,
+                                      Map<String, Lane> lanes, User user) {
+        InvokeRequest request = item.request();
+        if (request == null) {
+            return Mono.just(error(null, "INVALID_REQUEST", "Batch item has no request"));
+        }
+        ToolExecutor executor = toolDescriptorRegistry.getExecutor(request.getToolId());
+        if (executor == null) {
+            return Mono.just(error(request, "TOOL_NOT_FOUND", "Unknown tool: " + request.getToolId()));
+        }
+        List<Mono<InvokeResponse>> dependencies = new ArrayList<>();
+        for (String dependency : item.dependsOn() == null ? List.<String>of() : item.dependsOn()) {
+            Mono<InvokeResponse> response = byRequestId.get(dependency);
+            if (response == null) {
+                return Mono.just(error(request, "INVALID_DEPENDENCY",
+                        "Depends on '" + dependency + "', which is not an earlier item of the batch"));
+            }
+            dependencies.add(response);
+        }
+
+        Object repositoryId = request.getParameters() == null ? null : request.getParameters().get(REPOSITORY_ID_KEY);
+        Lane lane = lanes.computeIfAbsent(Objects.toString(VariableUtils.safeString(repositoryId), ""),
+                key -> new Lane(properties.getPerRepositoryConcurrency()));
+        Mono<InvokeResponse> execution = lane.submit(Mono.defer(() -> executor.execute(request, user))
+                .onErrorResume(e -> Mono.just(error(request, "EXECUTION_ERROR", ToolExecutorUtil.buildErrorResponse(request.getToolId(), e)))));
+
+        return Flux.concat(dependencies)
+                .filter(response -> response.getError() != null)
+                .next()
+                .map(failed -> error(request, "DEPENDENCY_FAILED", "Dependency '" + failed.getRequestId() + "' failed"))
+                .switchIfEmpty(execution);
+    }
+
+    private static InvokeResponse error(InvokeRequest request, String code, String message) {
+        return InvokeResponse.builder()
+                .requestId(request == null ? null : request.getRequestId())
+                .toolId(request == null ? null : request.getToolId())
+                .error(InvokeResponse.ErrorInfo.builder()
+                        .code(code)
+                        .message(message)
+                        .build())
+                .executedAt(Instant.now())
+                .build();
+    }
+
+    /**
+     * @param dependsOn {@code requestId}s of earlier items that must answer first; may be {@code null}
+     */
+    public record BatchItem(InvokeRequest request, List<String> dependsOn) {
+    }
+
+    /**
+     * Runs the invocations against one repository, at most {@code concurrency} at a time.
+     */
+    private static final class Lane {
+        private final Sinks.Many<Mono<Void>> queue = Sinks.many().unicast().onBackpressureBuffer();
+        private final Disposable worker;
+
+        private Lane(int concurrency) {
+            this.worker = queue.asFlux()
+                    .flatMap(task -> task, Math.max(1, concurrency))
+                    .subscribe();
+        }
+
+        /**
+         * {@code task} must not fail; it is queued when the returned Mono is subscribed.
+         */
+        private <T> Mono<T> submit(Mono<T> task) {
+            return Mono.defer(() -> {
+                Sinks.One<T> result = Sinks.one();
+                queue.emitNext(task.doOnNext(result::tryEmitValue)
+                        .doOnSuccess(value -> {
+                            if (value == null) {
+                                result.tryEmitEmpty();
+                            }
+                        })
+                        .then(), RETRY_CONTENDED);
+                return result.asMono();
+            });
+        }
+
+        private void close() {
+            queue.tryEmitComplete();
+            worker.dispose();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ir.msob.manak.rms.scm.tool;
+
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import ir.msob.manak.core.model.jima.security.User;
+import ir.msob.manak.core.service.jima.security.UserService;
+import ir.msob.manak.domain.model.toolhub.dto.InvokeResponse;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.security.Principal;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Invokes several tools in one call. Responses are streamed as they complete, as NDJSON or as server-sent
+ * events depending on {@code Accept}; see {@link ToolBatchInvoker} for ordering and concurrency.
+ */
+@RestController
+@RequestMapping(ToolBatchRestResource.BASE_URI)
+@RequiredArgsConstructor
+public class ToolBatchRestResource {
+    public static final String BASE_URI = "/api/v1/tool/invoke/batch";
+    private final Logger log = LoggerFactory.getLogger(ToolBatchRestResource.class);
+
+    private final UserService userService;
+    private final ToolBatchInvoker toolBatchInvoker;
+
+    @PostMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Stream of one InvokeResponse per item, in completion order")})
+    public Flux<InvokeResponse> invoke(@RequestBody List<ToolBatchInvoker.BatchItem> items, Principal principal) {
+        log.debug("REST request to invoke a batch of {} tools", items.size());
+        User user = userService.getUser(Optional.ofNullable(principal));
+        return toolBatchInvoker.invoke(items, user);
+    }
+}
@@ -0,0 +1,132 @@
+package ir.msob.manak.rms.scm.tool;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+import ir.msob.manak.domain.model.toolhub.ToolExecutor;
+import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.ToolDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Descriptors of every {@link ToolExecutor} in this service, built once at startup.
+ * <p>
+ * Each descriptor is a deep builder graph (parameters, examples, policies) that never changes while the
+ * service runs, so it is built and serialized to JSON a single time. Catalog requests are answered from
+ * the stored bytes, with a SHA-256 content hash as ETag so pollers that already have the current catalog
+ * get {@code 304} without a body. {@link DescribedToolExecutor}s hand out the descriptor cached here from
+ * {@code getToolDescriptor()}, so the invoke path does not rebuild it either.
+ */
+@Component
+public class ToolDescriptorRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ToolDescriptorRegistry.class);
+
+    private final Map<String, ToolDescriptor> descriptors;
+    private final Map<String, ToolExecutor> executors = new LinkedHashMap<>();
+    private final Map<Class<?>, ToolDescriptor> descriptorsByExecutor = new HashMap<>();
+    private final Map<String, Serialized> serializedDescriptors;
+    private final Serialized catalog;
+
+    public ToolDescriptorRegistry(List<ToolExecutor> toolExecutors, ObjectMapper objectMapper) {
+        List<ToolDescriptor> built = new ArrayList<>(toolExecutors.size());
+        toolExecutors.forEach(executor -> {
+            // getToolDescriptor() of a DescribedToolExecutor asks this registry, which is being built
+            ToolDescriptor descriptor = executor instanceof DescribedToolExecutor described
+                    ? described.buildToolDescriptor()
+                    : executor.getToolDescriptor();
+            built.add(descriptor);
+            executors.put(descriptor.getName(), executor);
+            descriptorsByExecutor.put(AopUtils.getTargetClass(executor), descriptor);
+        });
+        built.sort(Comparator.comparing(ToolDescriptor::getName));
+
+        Map<String, ToolDescriptor> byName = new LinkedHashMap<>();
+        Map<String, Serialized> serializedByName = new LinkedHashMap<>();
+        for (ToolDescriptor descriptor : built) {
+            if (byName.putIfAbsent(descriptor.getName(), descriptor) != null) {
+                throw new CommonRuntimeException("Duplicate tool name: " + descriptor.getName());
+            }
+            serializedByName.put(descriptor.getName(), serialize(objectMapper, descriptor));
+        }
+        this.descriptors = Collections.unmodifiableMap(byName);
+        this.serializedDescriptors = Collections.unmodifiableMap(serializedByName);
+        this.catalog = serialize(objectMapper, built);
+        log.info("🧰 [ToolRegistry] {} tool descriptors cached, catalog {} bytes, etag={}",
+                built.size(), catalog.json().length, catalog.etag());
+    }
+
+    /**
+     * All descriptors by tool name, sorted by name.
+     */
+    public Map<String, ToolDescriptor> getDescriptors() {
+        return descriptors;
+    }
+
+    /**
+     * The cached descriptor of {@code executor}.
+     */
+    public ToolDescriptor descriptorOf(ToolExecutor executor) {
+        ToolDescriptor descriptor = descriptorsByExecutor.get(AopUtils.getTargetClass(executor));
+        if (descriptor == null) {
+            throw new CommonRuntimeException("Not a registered tool executor: " + executor.getClass().getName());
+        }
+        return descriptor;
+    }
+
+    /**
+     * The JSON array of all descriptors and its ETag.
+     */
+    public Serialized getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * The JSON of one descriptor and its ETag; {@code null} when no tool has that name.
+     */
+    public Serialized getDescriptor(String name) {
+        return serializedDescriptors.get(name);
+    }
+
+    /**
+     * Executor of the tool {@code toolId} names: its descriptor name, optionally qualified with a provider
+     * prefix ({@code <provider>:<name>}); {@code null} when unknown.
+     */
+    public ToolExecutor getExecutor(String toolId) {
+        if (toolId == null) {
+            return null;
+        }
+        ToolExecutor executor = executors.get(toolId);
+        int colon = toolId.lastIndexOf(':');
+        return executor != null || colon < 0 ? executor : executors.get(toolId.substring(colon + 1));
+    }
+
+    private static Serialized serialize(ObjectMapper objectMapper, Object value) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            return new Serialized(json, "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json)) + "\"");
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new CommonRuntimeException("Cannot serialize tool descriptor: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param json UTF-8 JSON; shared, must not be modified
+     * @param etag quoted strong ETag of {@code json}
+     */
+    public record Serialized(byte[] json, String etag) {
+    }
+}
@@ -0,0 +1,55 @@
+package ir.msob.manak.rms.scm.tool;
+
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Tool catalog of this service, served from the bytes cached in {@link ToolDescriptorRegistry}. A matching
+ * {@code If-None-Match} gets {@code 304}, handled by WebFlux.
+ */
+@RestController
+@RequestMapping(ToolDescriptorRestResource.BASE_URI)
+@RequiredArgsConstructor
+public class ToolDescriptorRestResource {
+    public static final String BASE_URI = "/api/v1/tool/descriptor";
+    private final Logger log = LoggerFactory.getLogger(ToolDescriptorRestResource.class);
+
+    private final ToolDescriptorRegistry toolDescriptorRegistry;
+
+    @GetMapping
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Return the descriptors of all tools"),
+            @ApiResponse(code = 304, message = "The catalog matches If-None-Match")})
+    public ResponseEntity<byte[]> getCatalog() {
+        log.debug("REST request to get the tool catalog");
+        return toResponse(toolDescriptorRegistry.getCatalog());
+    }
+
+    @GetMapping("{name}")
+    @ApiResponses(value = {@ApiResponse(code = 200, message = "Return the descriptor of the tool"),
+            @ApiResponse(code = 304, message = "The descriptor matches If-None-Match"),
+            @ApiResponse(code = 404, message = "No tool has that name")})
+    public ResponseEntity<byte[]> getDescriptor(@PathVariable("name") String name) {
+        log.debug("REST request to get the descriptor of tool {}", name);
+        ToolDescriptorRegistry.Serialized descriptor = toolDescriptorRegistry.getDescriptor(name);
+        if (descriptor == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return toResponse(descriptor);
+    }
+
+    private static ResponseEntity<byte[]> toResponse(ToolDescriptorRegistry.Serialized serialized) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(serialized.etag())
+                .body(serialized.json());
+    }
+}
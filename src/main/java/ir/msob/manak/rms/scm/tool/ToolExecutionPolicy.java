@@ -0,0 +1,184 @@
+package ir.msob.manak.rms.scm.tool;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ir.msob.manak.domain.model.common.model.RetryPolicy;
+import ir.msob.manak.domain.model.common.model.TimeoutPolicy;
+import ir.msob.manak.domain.model.toolhub.ToolExecutor;
+import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.ToolDescriptor;
+import ir.msob.manak.rms.scm.ScmProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Applies the {@link RetryPolicy} and {@link TimeoutPolicy} a tool declares in its descriptor to the
+ * operation behind {@code execute}.
+ * <p>
+ * Every attempt of an idempotent operation is bounded by {@code timeoutMs}. With {@code failFast} the
+ * attempt fails at that deadline and is not retried; otherwise it may run on for {@code gracePeriodMs} (a
+ * warning is logged when it finishes inside the grace period) before it is cancelled. Non-idempotent
+ * operations (writes) are never cancelled on timeout: the deadline would also cover their wait in the
+ * rate-limit and mutation queues, and a write cancelled half way may still land on the provider. They
+ * only log a warning when they overrun it. Only operations the tool marks idempotent are retried, and
+ * only on transient failures: timeouts, connection errors, 408/429 and 5xx. Retries
+ * back off exponentially ({@code initialIntervalMs * multiplier^n}, capped at {@code maxIntervalMs}) with
+ * {@code jitter} applied to each delay.
+ * <p>
+ * Tools call this around the provider call and before their own {@code onErrorResume}, so what is left
+ * after the last attempt still becomes the tool's structured error response.
+ * <p>
+ * Meters: {@code scm.tool.execution{tool,outcome}}, {@code scm.tool.retries{tool}}.
+ */
+@Component
+public class ToolExecutionPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(ToolExecutionPolicy.class);
+
+    private final ScmProperties.ToolExecution properties;
+    private final MeterRegistry meterRegistry;
+    /**
+     * Lazy: the registry is built from the executors, which depend on this policy.
+     */
+    private final ObjectProvider<ToolDescriptorRegistry> toolDescriptorRegistry;
+    /**
+     * Policies per tool class; descriptors are static, so each is built once.
+     */
+    private final Map<Class<?>, Policies> policies = new ConcurrentHashMap<>();
+
+    public ToolExecutionPolicy(ScmProperties scmProperties, MeterRegistry meterRegistry,
+                               ObjectProvider<ToolDescriptorRegistry> toolDescriptorRegistry) {
+        this.properties = scmProperties.getToolExecution();
+        this.meterRegistry = meterRegistry;
+        this.toolDescriptorRegistry = toolDescriptorRegistry;
+    }
+
+    /**
+     * @param idempotent whether repeating {@code operation} after a failure that may have reached the
+     *                   provider is safe
+     */
+    public <T> Mono<T> apply(ToolExecutor tool, boolean idempotent, Mono<T> operation) {
+        if (!properties.isEnabled()) {
+            return operation;
+        }
+        Policies policy = policies.computeIfAbsent(tool.getClass(), type -> Policies.of(toolDescriptorRegistry.getObject().descriptorOf(tool)));
+        Counter retries = Counter.builder("scm.tool.retries").tag("tool", policy.name()).register(meterRegistry);
+
+        Mono<T> guarded = idempotent ? withTimeout(policy, operation) : withDeadlineWarning(policy, operation);
+        if (idempotent && policy.maxAttempts() > 1) {
+            guarded = guarded.retryWhen(Retry.from(signals -> signals.concatMap(signal -> {
+                Throwable failure = signal.failure();
+                long attempt = signal.totalRetries() + 1;
+                if (attempt >= policy.maxAttempts() || !isTransient(failure, policy)) {
+                    return Mono.error(failure);
+                }
+                Duration delay = backoff(policy, attempt);
+                retries.increment();
+                log.warn("🔁 [{}] attempt {}/{} failed ({}), retrying in {}ms",
+                        policy.name(), attempt, policy.maxAttempts(), failure.getMessage(), delay.toMillis());
+                return Mono.delay(delay).thenReturn(signal);
+            })));
+        }
+
+        Mono<T> attempts = guarded;
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return attempts
+                    .doOnSuccess(value -> sample.stop(timer(policy, "success")))
+                    .doOnError(e -> sample.stop(timer(policy, e instanceof TimeoutException ? "timeout" : "error")))
+                    .doOnCancel(() -> sample.stop(timer(policy, "cancelled")));
+        });
+    }
+
+    private <T> Mono<T> withTimeout(Policies policy, Mono<T> operation) {
+        if (policy.timeoutMs() <= 0) {
+            return operation;
+        }
+        long deadline = policy.failFast() ? policy.timeoutMs() : policy.timeoutMs() + policy.gracePeriodMs();
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return operation
+                    .timeout(Duration.ofMillis(deadline), Mono.error(() -> new TimeoutException(
+                            policy.name() + " did not complete within " + deadline + "ms")))
+                    .doOnSuccess(value -> {
+                        long elapsed = Duration.ofNanos(System.nanoTime() - started).toMillis();
+                        if (elapsed > policy.timeoutMs()) {
+                            log.warn("⏱️ [{}] completed in {}ms, inside the grace period of its {}ms timeout",
+                                    policy.name(), elapsed, policy.timeoutMs());
+                        }
+                    });
+        });
+    }
+
+    private <T> Mono<T> withDeadlineWarning(Policies policy, Mono<T> operation) {
+        if (policy.timeoutMs() <= 0) {
+            return operation;
+        }
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return operation.doOnTerminate(() -> {
+                long elapsed = Duration.ofNanos(System.nanoTime() - started).toMillis();
+                if (elapsed > policy.timeoutMs()) {
+                    log.warn("⏱️ [{}] took {}ms, past its {}ms timeout; writes are not cancelled",
+                            policy.name(), elapsed, policy.timeoutMs());
+                }
+            });
+        });
+    }
+
+    private Timer timer(Policies policy, String outcome) {
+        return Timer.builder("scm.tool.execution")
+                .tag("tool", policy.name())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private Duration backoff(Policies policy, long attempt) {
+        double delay = Math.min(policy.initialIntervalMs() * Math.pow(policy.multiplier(), attempt - 1), policy.maxIntervalMs());
+        double jitter = properties.getJitter();
+        double factor = 1 - jitter + ThreadLocalRandom.current().nextDouble() * 2 * jitter;
+        return Duration.ofMillis(Math.max(0, Math.round(delay * factor)));
+    }
+
+    private static boolean isTransient(Throwable e, Policies policy) {
+        if (e instanceof TimeoutException) {
+            return !policy.failFast();
+        }
+        if (e instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == 408 || status == 429 || status >= 500;
+        }
+        return e instanceof WebClientRequestException || e instanceof IOException;
+    }
+
+    private record Policies(String name, int maxAttempts, long initialIntervalMs, double multiplier, long maxIntervalMs,
+                            long timeoutMs, boolean failFast, long gracePeriodMs) {
+
+        static Policies of(ToolDescriptor descriptor) {
+            RetryPolicy retry = descriptor.getRetryPolicy();
+            TimeoutPolicy timeout = descriptor.getTimeoutPolicy();
+            boolean retries = retry != null && retry.isEnabled();
+            return new Policies(descriptor.getName(),
+                    retries ? Math.max(1, retry.getMaxAttempts()) : 1,
+                    retries ? retry.getInitialIntervalMs() : 0,
+                    retries && retry.getMultiplier() >= 1 ? retry.getMultiplier() : 1,
+                    retries ? retry.getMaxIntervalMs() : 0,
+                    timeout != null ? timeout.getTimeoutMs() : 0,
+                    timeout != null && timeout.isFailFast(),
+                    timeout != null ? timeout.getGracePeriodMs() : 0);
+        }
+    }
+}
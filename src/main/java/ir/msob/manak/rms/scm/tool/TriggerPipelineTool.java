@@ -3,7 +3,6 @@ package ir.msob.manak.rms.scm.tool;
 import ir.msob.manak.core.model.jima.security.User;
 import ir.msob.manak.domain.model.common.model.ParameterDescriptor;
 import ir.msob.manak.domain.model.rms.dto.PipelineSpec;
-import ir.msob.manak.domain.model.toolhub.ToolExecutor;
 import ir.msob.manak.domain.model.toolhub.dto.InvokeRequest;
 import ir.msob.manak.domain.model.toolhub.dto.InvokeResponse;
 import ir.msob.manak.domain.model.toolhub.toolprovider.tooldescriptor.ToolDescriptor;
@@ -12,6 +11,7 @@ import ir.msob.manak.rms.scm.scmprovider.ScmOperationService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
@@ -21,14 +21,21 @@ import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
-public class TriggerPipelineTool implements ToolExecutor {
+public class TriggerPipelineTool implements DescribedToolExecutor {
 
     private static final Logger log = LoggerFactory.getLogger(TriggerPipelineTool.class);
 
     private final ScmOperationService scmOperationService;
+    private final ToolExecutionPolicy toolExecutionPolicy;
+    private final ObjectProvider<ToolDescriptorRegistry> toolDescriptorRegistry;
 
     @Override
     public ToolDescriptor getToolDescriptor() {
+        return toolDescriptorRegistry.getObject().descriptorOf(this);
+    }
+
+    @Override
+    public ToolDescriptor buildToolDescriptor() {
         // ==== Parameters ====
         ParameterDescriptor repositoryIdParam = ParameterDescriptor.builder()
                 .type(ParameterDescriptor.ToolParameterType.STRING)
@@ -122,7 +129,7 @@ public class TriggerPipelineTool implements ToolExecutor {
 
         log.info("[{}] Trigger pipeline: repo={}, spec={}", toolId, repositoryId, spec);
 
-        return scmOperationService.triggerPipeline(repositoryId, spec, user)
+        return toolExecutionPolicy.apply(this, false, scmOperationService.triggerPipeline(repositoryId, spec, user))
                 .map(res -> InvokeResponse.builder()
                         .requestId(requestId)
                         .toolId(toolId)
@@ -8,7 +8,13 @@ import ir.msob.manak.domain.model.rms.repository.branch.Branch;
 import jakarta.annotation.Nullable;
 import org.apache.logging.log4j.util.Strings;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
 public class RepositoryUtil {
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[,\\s]+");
+
     public static String getBranch(RepositoryDto repositoryDto, @Nullable String branch) {
         if (Strings.isNotBlank(branch)) {
             return branch;
@@ -39,6 +45,18 @@ public class RepositoryUtil {
         return repositoryDto.getSpecification().getToken();
     }
 
+    /**
+     * A specification token may hold a pool of tokens separated by commas or whitespace.
+     */
+    public static List<String> getTokens(@Nullable String token) {
+        if (Strings.isBlank(token)) {
+            return List.of();
+        }
+        return Arrays.stream(TOKEN_SEPARATOR.split(token.trim()))
+                .filter(Strings::isNotBlank)
+                .toList();
+    }
+
     public static ScmContext getScmContext(RepositoryDto repo) {
         String repoPath = RepositoryUtil.getRepositoryPath(repo);
         String token = RepositoryUtil.getToken(repo);
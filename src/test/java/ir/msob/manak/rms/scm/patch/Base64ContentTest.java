@@ -0,0 +1,84 @@
+package ir.msob.manak.rms.scm.patch;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Base64ContentTest {
+
+    @Test
+    void decodesLikeTheJdkForEveryPaddingLength() {
+        Random random = new Random(42);
+        for (int length = 1; length <= 64; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+            String encoded = Base64.getEncoder().encodeToString(bytes);
+
+            assertTrue(Base64Content.isBase64(encoded), encoded);
+            assertArrayEquals(bytes, Base64Content.decode(encoded), encoded);
+        }
+    }
+
+    @Test
+    void decodesMimeWrappedContent() {
+        byte[] bytes = "x".repeat(500).getBytes(StandardCharsets.UTF_8);
+        String crlfWrapped = Base64.getMimeEncoder().encodeToString(bytes);
+        String lfWrapped = crlfWrapped.replace("\r\n", "\n");
+
+        assertTrue(crlfWrapped.contains("\r\n"));
+        assertArrayEquals(bytes, Base64Content.decode(crlfWrapped));
+        assertArrayEquals(bytes, Base64Content.decode(lfWrapped));
+        assertArrayEquals(bytes, Base64Content.decode(lfWrapped + "\n"));
+    }
+
+    @Test
+    void decodesToUtf8String() {
+        String text = "سلام, world";
+
+        assertEquals(text, Base64Content.decodeToString(Base64.getEncoder().encodeToString(text.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void requiresPadding() {
+        assertTrue(Base64Content.isBase64("YWI="));
+        assertTrue(Base64Content.isBase64("YQ=="));
+        // the same data unpadded, and plain words whose length is not a multiple of four
+        assertFalse(Base64Content.isBase64("YWI"));
+        assertFalse(Base64Content.isBase64("YQ"));
+        assertFalse(Base64Content.isBase64("hello"));
+    }
+
+    @Test
+    void rejectsWhatIsNotStandardBase64() {
+        assertFalse(Base64Content.isBase64(""));
+        assertFalse(Base64Content.isBase64("\n"));
+        assertFalse(Base64Content.isBase64("===="));
+        assertFalse(Base64Content.isBase64("Y==="));
+        assertFalse(Base64Content.isBase64("YQ==YQ=="));
+        assertFalse(Base64Content.isBase64("Hello world!"));
+        assertFalse(Base64Content.isBase64("a-b_"));
+        assertFalse(Base64Content.isBase64("YWJj ZGVm"));
+        assertFalse(Base64Content.isBase64("YWJjZGVmé==="));
+        assertFalse(Base64Content.isBase64(null));
+        assertThrows(IllegalArgumentException.class, () -> Base64Content.decode("not base64"));
+    }
+
+    @Test
+    void encodingOverridesDetection() {
+        assertEquals(Base64Content.Encoding.AUTO, Base64Content.Encoding.of(null));
+        assertEquals(Base64Content.Encoding.AUTO, Base64Content.Encoding.of(" "));
+        assertEquals(Base64Content.Encoding.PLAIN, Base64Content.Encoding.of("UTF-8"));
+        assertEquals(Base64Content.Encoding.BASE64, Base64Content.Encoding.of(" Base64 "));
+        assertThrows(IllegalArgumentException.class, () -> Base64Content.Encoding.of("hex"));
+
+        // "main" is valid base64, so only an explicit encoding keeps it as text
+        assertTrue(Base64Content.Encoding.AUTO.isBase64("main"));
+        assertFalse(Base64Content.Encoding.PLAIN.isBase64("main"));
+        assertTrue(Base64Content.Encoding.BASE64.isBase64("YQ=="));
+        assertThrows(IllegalArgumentException.class, () -> Base64Content.Encoding.BASE64.isBase64("YQ"));
+    }
+}
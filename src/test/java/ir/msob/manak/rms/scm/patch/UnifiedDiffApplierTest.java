@@ -0,0 +1,243 @@
+package ir.msob.manak.rms.scm.patch;
+
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnifiedDiffApplierTest {
+
+    private static final String ORIGINAL = "one\ntwo\nthree\nfour\nfive\nsix\nseven\neight\nnine\nten\n";
+
+    private static String apply(String original, String diff) {
+        return UnifiedDiffApplier.apply(original, UnifiedDiffParser.parse(diff).get(0));
+    }
+
+    @Test
+    void appliesHunksAtTheirStatedLines() {
+        String diff = """
+                --- a/x
+                +++ b/x
+                @@ -2,3 +2,3 @@
+                 two
+                -three
+                +THREE
+                 four
+                @@ -8,2 +8,3 @@
+                 eight
+                +eight and a half
+                 nine
+                """;
+
+        assertEquals("one\ntwo\nTHREE\nfour\nfive\nsix\nseven\neight\neight and a half\nnine\nten\n", apply(ORIGINAL, diff));
+    }
+
+    @Test
+    void appliesHunksAtAnOffsetWhenTheFileHasShifted() {
+        String shifted = "zero\nminus one\n" + ORIGINAL;
+        String diff = """
+                --- a/x
+                +++ b/x
+                @@ -5,3 +5,3 @@
+                 five
+                -six
+                +SIX
+                 seven
+                """;
+
+        assertEquals("zero\nminus one\none\ntwo\nthree\nfour\nfive\nSIX\nseven\neight\nnine\nten\n", apply(shifted, diff));
+        // and upwards, when lines were removed above
+        assertEquals("four\nfive\nSIX\nseven\neight\nnine\nten\n", apply("four\nfive\nsix\nseven\neight\nnine\nten\n", diff));
+    }
+
+    @Test
+    void picksTheMatchNearestTheStatedLine() {
+        String original = "x\nx\nx\nx\nx\nx\n";
+        String diff = """
+                --- a/x
+                +++ b/x
+                @@ -4 +4 @@
+                -x
+                +y
+                """;
+
+        assertEquals("x\nx\nx\ny\nx\nx\n", apply(original, diff));
+    }
+
+    @Test
+    void rejectsContextThatMatchesNowhere() {
+        // no fuzz: a single differing context line fails the hunk rather than applying it loosely
+        String diff = """
+                --- a/x
+                +++ b/x
+                @@ -2,3 +2,3 @@
+                 two
+                -three
+                +THREE
+                 for
+                """;
+
+        CommonRuntimeException e = assertThrows(CommonRuntimeException.class, () -> apply(ORIGINAL, diff));
+        assertTrue(e.getMessage().contains("does not match the file at line 2"), e.getMessage());
+    }
+
+    @Test
+    void rejectsHunksBeyondTheEndOfTheFile() {
+        String diff = """
+                --- a/x
+                +++ b/x
+                @@ -40,2 +40,2 @@
+                 missing
+                -line
+                +LINE
+                """;
+
+        CommonRuntimeException e = assertThrows(CommonRuntimeException.class, () -> apply(ORIGINAL, diff));
+        assertTrue(e.getMessage().contains("beyond the end of the file"), e.getMessage());
+    }
+
+    @Test
+    void doesNotMoveAHunkBackIntoTheRegionOfThePreviousOne() {
+        String diff = """
+                --- a/x
+                +++ b/x
+                @@ -2,2 +2,2 @@
+                 two
+                -three
+                +THREE
+                @@ -2,2 +2,2 @@
+                 two
+                -three
+                +THREE
+                """;
+
+        assertThrows(CommonRuntimeException.class, () -> apply(ORIGINAL, diff));
+    }
+
+    @Test
+    void insertsPureAdditionsAfterTheStatedLine() {
+        String atStart = """
+                --- a/x
+                +++ b/x
+                @@ -0,0 +1 @@
+                +header
+                """;
+        String afterThird = """
+                --- a/x
+                +++ b/x
+                @@ -3,0 +4 @@
+                +inserted
+                """;
+
+        assertEquals("header\na\nb\nc\n", apply("a\nb\nc\n", atStart));
+        assertEquals("a\nb\nc\ninserted\n", apply("a\nb\nc\n", afterThird));
+    }
+
+    @Test
+    void createsNewFilesAndDeletesRemovedOnes() {
+        String created = """
+                diff --git a/new.txt b/new.txt
+                new file mode 100644
+                --- /dev/null
+                +++ b/new.txt
+                @@ -0,0 +1,2 @@
+                +hello
+                +world
+                """;
+        String deleted = """
+                diff --git a/old.txt b/old.txt
+                deleted file mode 100644
+                --- a/old.txt
+                +++ /dev/null
+                @@ -1 +0,0 @@
+                -bye
+                """;
+
+        assertEquals("hello\nworld\n", apply("", created));
+        assertNull(apply("bye\n", deleted));
+    }
+
+    @Test
+    void appliesTheHunksOfARenamedFile() {
+        String diff = """
+                diff --git a/old/Name.java b/new/Name.java
+                similarity index 90%
+                rename from old/Name.java
+                rename to new/Name.java
+                --- a/old/Name.java
+                +++ b/new/Name.java
+                @@ -1 +1 @@
+                -package old;
+                +package new;
+                """;
+
+        FileDiff file = UnifiedDiffParser.parse(diff).get(0);
+
+        assertTrue(file.isRename());
+        assertEquals("package new;\nclass Name {}\n", UnifiedDiffApplier.apply("package old;\nclass Name {}\n", file));
+    }
+
+    @Test
+    void honoursNoNewlineAtEndOfFile() {
+        String dropNewline = """
+                --- a/x
+                +++ b/x
+                @@ -1,2 +1,2 @@
+                 a
+                -b
+                +c
+                \\ No newline at end of file
+                """;
+        String addNewline = """
+                --- a/x
+                +++ b/x
+                @@ -1,2 +1,2 @@
+                 a
+                -b
+                \\ No newline at end of file
+                +b
+                """;
+        String keepMissingNewline = """
+                --- a/x
+                +++ b/x
+                @@ -1,2 +1,2 @@
+                -a
+                +A
+                 b
+                \\ No newline at end of file
+                """;
+
+        assertEquals("a\nc", apply("a\nb\n", dropNewline));
+        assertEquals("a\nb\n", apply("a\nb", addNewline));
+        assertEquals("A\nb", apply("a\nb", keepMissingNewline));
+    }
+
+    @Test
+    void keepsCrlfLineEndings() {
+        String diff = """
+                --- a/x
+                +++ b/x
+                @@ -1,3 +1,4 @@
+                 one
+                -two
+                +TWO
+                +two and a half
+                 three
+                """;
+
+        assertEquals("one\r\nTWO\r\ntwo and a half\r\nthree\r\n", apply("one\r\ntwo\r\nthree\r\n", diff));
+    }
+
+    @Test
+    void leavesTheRestOfTheFileUntouched() {
+        String diff = """
+                --- a/x
+                +++ b/x
+                @@ -1 +1 @@
+                -one
+                +1
+                """;
+
+        assertEquals(ORIGINAL.replaceFirst("one", "1"), apply(ORIGINAL, diff));
+    }
+}
@@ -0,0 +1,213 @@
+package ir.msob.manak.rms.scm.patch;
+
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnifiedDiffParserTest {
+
+    @Test
+    void detectsUnifiedDiffVersusJsonArray() {
+        assertTrue(UnifiedDiffParser.isUnifiedDiff("diff --git a/x b/x\n"));
+        assertTrue(UnifiedDiffParser.isUnifiedDiff("--- a/x\n+++ b/x\n"));
+        assertFalse(UnifiedDiffParser.isUnifiedDiff("  [ {\"path\": \"x\", \"content\": \"y\"} ]"));
+        assertFalse(UnifiedDiffParser.isUnifiedDiff("   "));
+        assertFalse(UnifiedDiffParser.isUnifiedDiff(null));
+    }
+
+    @Test
+    void parsesMultiFileGitDiff() {
+        String diff = """
+                diff --git a/src/A.java b/src/A.java
+                index 1111111..2222222 100644
+                --- a/src/A.java
+                +++ b/src/A.java
+                @@ -1,3 +1,3 @@
+                 one
+                -two
+                +TWO
+                 three
+                @@ -10,2 +10,3 @@ class A {
+                 ten
+                +ten and a half
+                 eleven
+                diff --git a/README.md b/README.md
+                --- a/README.md
+                +++ b/README.md
+                @@ -1 +1 @@
+                -# Title
+                +# New title
+                """;
+
+        List<FileDiff> files = UnifiedDiffParser.parse(diff);
+
+        assertEquals(2, files.size());
+        FileDiff first = files.get(0);
+        assertEquals("src/A.java", first.oldPath());
+        assertEquals("src/A.java", first.newPath());
+        assertNull(first.newMode());
+        assertEquals(2, first.hunks().size());
+        Hunk second = first.hunks().get(1);
+        assertEquals(10, second.oldStart());
+        assertEquals(2, second.oldCount());
+        assertEquals(10, second.newStart());
+        assertEquals(3, second.newCount());
+        assertEquals(List.of(" ten", "+ten and a half", " eleven"), second.lines());
+
+        Hunk readme = files.get(1).hunks().get(0);
+        assertEquals(1, readme.oldCount());
+        assertEquals(1, readme.newCount());
+        assertEquals(List.of("-# Title", "+# New title"), readme.lines());
+    }
+
+    @Test
+    void parsesPlainDiffWithoutGitHeaders() {
+        String diff = """
+                --- a/one.txt\t2024-01-01 00:00:00
+                +++ b/one.txt\t2024-01-02 00:00:00
+                @@ -1 +1 @@
+                -a
+                +b
+                --- a/two.txt
+                +++ b/two.txt
+                @@ -1 +1 @@
+                -c
+                +d
+                """;
+
+        List<FileDiff> files = UnifiedDiffParser.parse(diff);
+
+        assertEquals(List.of("one.txt", "two.txt"), files.stream().map(FileDiff::path).toList());
+    }
+
+    @Test
+    void readsHunkBodiesByCountSoRemovedDashLinesAreNotHeaders() {
+        String diff = """
+                --- a/notes.md
+                +++ b/notes.md
+                @@ -1,3 +1,1 @@
+                --- a/not-a-header
+                -++ b/not-a-header
+                 kept
+                """;
+
+        List<FileDiff> files = UnifiedDiffParser.parse(diff);
+
+        assertEquals(1, files.size());
+        assertEquals(List.of("--- a/not-a-header", "-++ b/not-a-header", " kept"), files.get(0).hunks().get(0).lines());
+    }
+
+    @Test
+    void parsesRenameWithoutHunks() {
+        String diff = """
+                diff --git a/old/Name.java b/new/Name.java
+                similarity index 100%
+                rename from old/Name.java
+                rename to new/Name.java
+                """;
+
+        FileDiff file = UnifiedDiffParser.parse(diff).get(0);
+
+        assertTrue(file.isRename());
+        assertEquals("old/Name.java", file.oldPath());
+        assertEquals("new/Name.java", file.newPath());
+        assertTrue(file.hunks().isEmpty());
+    }
+
+    @Test
+    void parsesNewAndDeletedFilesWithModes() {
+        String diff = """
+                diff --git a/run.sh b/run.sh
+                new file mode 100755
+                index 0000000..3333333
+                --- /dev/null
+                +++ b/run.sh
+                @@ -0,0 +1,2 @@
+                +#!/bin/sh
+                +echo hi
+                diff --git a/gone.txt b/gone.txt
+                deleted file mode 100644
+                index 4444444..0000000
+                --- a/gone.txt
+                +++ /dev/null
+                @@ -1 +0,0 @@
+                -bye
+                diff --git a/tool.sh b/tool.sh
+                old mode 100644
+                new mode 100755
+                """;
+
+        List<FileDiff> files = UnifiedDiffParser.parse(diff);
+
+        FileDiff created = files.get(0);
+        assertTrue(created.isNewFile());
+        assertEquals("run.sh", created.newPath());
+        assertEquals("100755", created.newMode());
+
+        FileDiff deleted = files.get(1);
+        assertTrue(deleted.isDeletedFile());
+        assertEquals("gone.txt", deleted.path());
+        assertNull(deleted.newMode());
+
+        FileDiff modeChange = files.get(2);
+        assertEquals("tool.sh", modeChange.path());
+        assertEquals("100755", modeChange.newMode());
+        assertTrue(modeChange.hunks().isEmpty());
+    }
+
+    @Test
+    void keepsNoNewlineMarkers() {
+        String diff = """
+                --- a/x
+                +++ b/x
+                @@ -1 +1 @@
+                -old
+                \\ No newline at end of file
+                +new
+                \\ No newline at end of file
+                """;
+
+        List<String> lines = UnifiedDiffParser.parse(diff).get(0).hunks().get(0).lines();
+
+        assertEquals(List.of("-old", "\\ No newline at end of file", "+new", "\\ No newline at end of file"), lines);
+    }
+
+    @Test
+    void stripsCarriageReturnsFromCrlfDiffs() {
+        String diff = "--- a/x\r\n+++ b/x\r\n@@ -1,2 +1,2 @@\r\n keep\r\n-old\r\n+new\r\n";
+
+        FileDiff file = UnifiedDiffParser.parse(diff).get(0);
+
+        assertEquals("x", file.path());
+        assertEquals(List.of(" keep", "-old", "+new"), file.hunks().get(0).lines());
+    }
+
+    @Test
+    void acceptsEmptyContextLinesWithoutTheirSpace() {
+        String diff = "--- a/x\n+++ b/x\n@@ -1,3 +1,3 @@\n a\n\n-b\n+c\n";
+
+        assertEquals(List.of(" a", " ", "-b", "+c"), UnifiedDiffParser.parse(diff).get(0).hunks().get(0).lines());
+    }
+
+    @Test
+    void rejectsMalformedInput() {
+        assertThrows(CommonRuntimeException.class, () -> UnifiedDiffParser.parse("""
+                diff --git a/logo.png b/logo.png
+                Binary files a/logo.png and b/logo.png differ
+                """));
+        assertThrows(CommonRuntimeException.class, () -> UnifiedDiffParser.parse("@@ -1 +1 @@\n-a\n+b\n"));
+        assertThrows(CommonRuntimeException.class, () -> UnifiedDiffParser.parse("--- a/x\n+++ b/x\n@@ -1,2 +1,2 @@\n-a\n+b\n"));
+        assertThrows(CommonRuntimeException.class, () -> UnifiedDiffParser.parse("--- a/x\n+++ b/x\n@@ -x +1 @@\n-a\n+b\n"));
+        assertThrows(CommonRuntimeException.class, () -> UnifiedDiffParser.parse("--- a/x\n+++ b/x\n@@ -1 +1 @@\n*a\n"));
+    }
+
+    @Test
+    void rejectsTextWithoutFileHeaders() {
+        assertThrows(CommonRuntimeException.class, () -> UnifiedDiffParser.parse("please change the greeting to hello\n"));
+        assertThrows(CommonRuntimeException.class, () -> UnifiedDiffParser.parse("{\"path\": \"a.txt\"}"));
+        assertThrows(CommonRuntimeException.class, () -> UnifiedDiffParser.parse("   \n"));
+    }
+}
@@ -0,0 +1,145 @@
+package ir.msob.manak.rms.scm.scmprovider;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ir.msob.jima.core.commons.exception.runtime.CommonRuntimeException;
+import ir.msob.manak.rms.scm.ScmProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationSchedulerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> started = new ArrayList<>();
+    private final List<String> cancelled = new ArrayList<>();
+    private final Map<String, Sinks.One<String>> gates = new HashMap<>();
+
+    @Test
+    void runsOneBranchInArrivalOrderAndOtherBranchesAlongside() {
+        MutationScheduler scheduler = scheduler(32, 4, 100);
+        List<String> results = new ArrayList<>();
+        submit(scheduler, "repo", "main", "a").subscribe(results::add);
+        submit(scheduler, "repo", "main", "b").subscribe(results::add);
+        submit(scheduler, "repo", "main", "c").subscribe(results::add);
+        submit(scheduler, "repo", "dev", "d").subscribe(results::add);
+        assertEquals(List.of("a", "d"), started);
+
+        complete("a");
+        assertEquals(List.of("a", "d", "b"), started);
+        complete("b");
+        complete("c");
+        complete("d");
+        assertEquals(List.of("a", "d", "b", "c"), started);
+        assertEquals(List.of("a", "b", "c", "d"), results);
+        assertEquals(0.0, gauge("scm.mutation.running"));
+    }
+
+    @Test
+    void runsExclusiveOperationsAloneAndLetsNothingOvertakeThem() {
+        MutationScheduler scheduler = scheduler(32, 4, 100);
+        submit(scheduler, "repo", "main", "patch").subscribe();
+        submit(scheduler, "repo", null, "merge").subscribe();
+        submit(scheduler, "repo", "dev", "branch").subscribe();
+        submit(scheduler, "other", "main", "elsewhere").subscribe();
+        assertEquals(List.of("patch", "elsewhere"), started);
+
+        complete("patch");
+        assertEquals(List.of("patch", "elsewhere", "merge"), started);
+        complete("merge");
+        assertEquals(List.of("patch", "elsewhere", "merge", "branch"), started);
+    }
+
+    @Test
+    void sharesSlotsRoundRobinAcrossRepositories() {
+        MutationScheduler scheduler = scheduler(1, 4, 100);
+        submit(scheduler, "busy", "b1", "busy-1").subscribe();
+        submit(scheduler, "busy", "b2", "busy-2").subscribe();
+        submit(scheduler, "busy", "b3", "busy-3").subscribe();
+        submit(scheduler, "quiet", "main", "quiet-1").subscribe();
+        assertEquals(List.of("busy-1"), started);
+        assertEquals(3.0, gauge("scm.mutation.queued"));
+
+        complete("busy-1");
+        complete("busy-2");
+        // the quiet repository gets the next slot although busy-3 arrived first
+        assertEquals(List.of("busy-1", "busy-2", "quiet-1"), started);
+        complete("quiet-1");
+        assertEquals(List.of("busy-1", "busy-2", "quiet-1", "busy-3"), started);
+    }
+
+    @Test
+    void cancellingAQueuedOperationRemovesItWithoutRunningIt() {
+        MutationScheduler scheduler = scheduler(32, 4, 100);
+        submit(scheduler, "repo", "main", "first").subscribe();
+        Disposable second = submit(scheduler, "repo", "main", "second").subscribe();
+        submit(scheduler, "repo", "main", "third").subscribe();
+        assertEquals(2.0, gauge("scm.mutation.queued"));
+
+        second.dispose();
+        assertEquals(1.0, gauge("scm.mutation.queued"));
+        complete("first");
+        assertEquals(List.of("first", "third"), started);
+        assertTrue(cancelled.isEmpty());
+    }
+
+    @Test
+    void cancellingARunningOperationCancelsItAndFreesItsBranch() {
+        MutationScheduler scheduler = scheduler(32, 4, 100);
+        Disposable first = submit(scheduler, "repo", "main", "first").subscribe();
+        submit(scheduler, "repo", "main", "second").subscribe();
+        assertEquals(List.of("first"), started);
+
+        first.dispose();
+        assertEquals(List.of("first"), cancelled);
+        assertEquals(List.of("first", "second"), started);
+        assertEquals(1.0, gauge("scm.mutation.running"));
+    }
+
+    @Test
+    void rejectsOperationsBeyondTheQueueBound() {
+        MutationScheduler scheduler = scheduler(32, 4, 1);
+        submit(scheduler, "repo", "main", "running").subscribe();
+        submit(scheduler, "repo", "main", "queued").subscribe();
+
+        assertThrows(CommonRuntimeException.class, () -> submit(scheduler, "repo", "main", "rejected").block());
+        assertFalse(started.contains("rejected"));
+    }
+
+    private MutationScheduler scheduler(int maxConcurrent, int perRepositoryConcurrency, int maxQueuedPerRepository) {
+        ScmProperties properties = new ScmProperties();
+        properties.getMutation().setMaxConcurrent(maxConcurrent);
+        properties.getMutation().setPerRepositoryConcurrency(perRepositoryConcurrency);
+        properties.getMutation().setMaxQueuedPerRepository(maxQueuedPerRepository);
+        return new MutationScheduler(properties, meterRegistry);
+    }
+
+    /**
+     * An operation that records when it starts and finishes once {@link #complete} is called with its name.
+     */
+    private Mono<String> submit(MutationScheduler scheduler, String repository, String branch, String name) {
+        Sinks.One<String> gate = Sinks.one();
+        gates.put(name, gate);
+        Mono<String> mutation = Mono.defer(() -> {
+                    started.add(name);
+                    return gate.asMono();
+                })
+                .doOnCancel(() -> cancelled.add(name));
+        return scheduler.submit(repository, branch, name, mutation);
+    }
+
+    private void complete(String name) {
+        gates.get(name).tryEmitValue(name);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+}